@@ -1,18 +1,34 @@
 package cn.yl.common.utils;
 
 import com.alibaba.excel.annotation.ExcelProperty;
+import com.fasterxml.jackson.annotation.JsonAlias;
+import com.fasterxml.jackson.databind.JsonNode;
 
 import java.io.File;
 import java.io.IOException;
-import java.nio.file.Files;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.function.Function;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
-import java.util.stream.Collectors;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /**
  * AList网盘操作工具
@@ -25,6 +41,45 @@ public class AList {
 
     private static Map<String, String> Mappings;
 
+    /**
+     * 批量请求默认并发数
+     */
+    public static final int DEFAULT_PARALLELISM = 4;
+
+    /**
+     * 可恢复任务每批处理的车牌数 每批完成后写入检查点
+     */
+    public static final int CHECKPOINT_CHUNK = 1000;
+
+    /**
+     * 搜索结果缓存 默认关闭
+     */
+    private static volatile SearchCache searchCache;
+
+    /**
+     * 本地文件索引 默认关闭
+     */
+    private static volatile LocalIndex localIndex;
+
+    /**
+     * 重命名映射表编译后的匹配器
+     */
+    private static volatile MappingMatcher mappingMatcher;
+
+    /**
+     * 默认会话 所有静态方法共用其连接池
+     */
+    private static volatile AListClient client;
+
+    /**
+     * 分页搜索预取线程池
+     */
+    private static final ExecutorService PREFETCH = Executors.newCachedThreadPool(r -> {
+        Thread thread = new Thread(r, "alist-prefetch");
+        thread.setDaemon(true);
+        return thread;
+    });
+
 
     /**
      * 网盘文件搜索
@@ -45,37 +100,372 @@ public class AList {
                                            long scope, long page, long per_Page, String token, String searchError,
                                            List<Search> searchList, Map<String, Data> searchMap) throws IOException {
         //todo 处理数据库中查到的可能还包含影片名称
-        String regex = "\\b(?:[a-zA-Z]*[-\\d\\s0-9a-zA-Z]*[-\\d])";
-        Pattern pattern = Pattern.compile(regex);
-        Matcher matcher = pattern.matcher(licensePlateMap.get(i));
-        if (matcher.find()) {
-            String group = matcher.group();
-            //构建搜索
-            Search search = Builder.of(Search::new)
-                    .with(Search::setKeywords, group)
-                    .with(Search::setParent, path)
-                    .with(Search::setPassword, password)
-                    .with(Search::setScope, scope)
-                    .with(Search::setPage, page)
-                    .with(Search::setPer_Page, per_Page)
-                    .build();
-            String response = HttpUtil.httpPost("http://localhost:5244/api/fs/search", JsonUtil.toJSONString(search), new HashMap<String, String>() {{
-                this.put("Authorization", token);
-            }});
-            Data data = JsonUtil.parseObject(response, Result.class).getData();
-            if (!data.getContent().isEmpty()) {
+        Search search = buildSearch(licensePlateMap.get(i), path, password, scope, page, per_Page);
+        if (search != null) {
+            Data data = doSearch(search, token);
+            if (data != null && data.getContent() != null && !data.getContent().isEmpty()) {
                 searchMap.put(licensePlateMap.get(i), data);
             } else {
                 searchList.add(search);
+                //只追加本次失败的记录 不再重写整个集合 由日志批量刷盘
+                ErrorJournal.of(searchError).append(FailedSearch.of(search, licensePlateMap.get(i)));
             }
         }
-        if (!searchList.isEmpty()) {
-            //将命名失败的写入一个文件中以备后面写入
-            Files.write(new File(searchError).toPath(), JsonUtil.toByteArray(searchList));
-        }
         return searchMap;
     }
 
+    /**
+     * 网盘文件批量搜索 一次性提交整个车牌集合 按并发上限并行请求
+     *
+     * @param licensePlateMap 查询到的集合
+     * @param path            路径
+     * @param password        密码
+     * @param scope           类型  0:全部 1:文件 2：文件夹
+     * @param page            页码
+     * @param per_Page        每页显示数量
+     * @param token           token
+     * @param searchError     搜索失败的文件路径
+     * @param searchList      搜索错误的集合 全部完成后统一写入
+     * @param parallelism     并发上限
+     * @return 车牌-搜索结果 按licensePlateMap的遍历顺序排列
+     */
+    public static Map<String, Data> search(Map<Integer, String> licensePlateMap, String path, String password,
+                                           long scope, long page, long per_Page, String token, String searchError,
+                                           List<Search> searchList, int parallelism) throws IOException {
+        return search(licensePlateMap.values(), path, password, scope, page, per_Page, token, searchError, searchList, parallelism);
+    }
+
+    /**
+     * 网盘文件批量搜索 直接使用列式任务输入
+     *
+     * @param input 任务输入 例：{@link JobInput#load(File, int, int)}
+     * @return 车牌-搜索结果 按行号顺序排列
+     */
+    public static Map<String, Data> search(JobInput input, String path, String password,
+                                           long scope, long page, long per_Page, String token, String searchError,
+                                           List<Search> searchList, int parallelism) throws IOException {
+        return search(input.plates(), path, password, scope, page, per_Page, token, searchError, searchList, parallelism);
+    }
+
+    private static Map<String, Data> search(Collection<String> licensePlates, String path, String password,
+                                            long scope, long page, long per_Page, String token, String searchError,
+                                            List<Search> searchList, int parallelism) throws IOException {
+        ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, parallelism));
+        Map<String, Future<Data>> futures = new LinkedHashMap<>();
+        Map<String, Search> searches = new HashMap<>();
+        try {
+            for (String licensePlate : licensePlates) {
+                if (licensePlate == null || futures.containsKey(licensePlate)) continue;
+                Search search = buildSearch(licensePlate, path, password, scope, page, per_Page);
+                if (search == null) continue;
+                searches.put(licensePlate, search);
+                futures.put(licensePlate, executor.submit(() -> doSearch(search, token)));
+            }
+            //每个任务各自返回结果 由调用线程统一汇总 不在任务之间共享可变集合
+            Map<String, Data> searchMap = new LinkedHashMap<>();
+            ErrorJournal journal = ErrorJournal.of(searchError);
+            for (Map.Entry<String, Future<Data>> entry : futures.entrySet()) {
+                Data data = null;
+                try {
+                    data = entry.getValue().get();
+                } catch (ExecutionException e) {
+                    System.err.printf("搜索[%s]失败：%s%n", entry.getKey(), e.getCause());
+                }
+                if (data != null && data.getContent() != null && !data.getContent().isEmpty()) {
+                    searchMap.put(entry.getKey(), data);
+                } else {
+                    searchList.add(searches.get(entry.getKey()));
+                    //将搜索失败的追加到日志中以备后面重试 记录原车牌 重放结果按车牌归类
+                    journal.append(FailedSearch.of(searches.get(entry.getKey()), entry.getKey()));
+                }
+            }
+            journal.flush();
+            return searchMap;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("批量搜索被中断");
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * 可恢复的批量搜索 每{@link #CHECKPOINT_CHUNK}个车牌为一批 每批完成后写入检查点 已完成的索引直接跳过
+     *
+     * @param checkpoint 检查点 已有的搜索结果会一并返回
+     * @return 车牌-搜索结果 包括之前运行取得的结果
+     */
+    public static Map<String, Data> search(Map<Integer, String> licensePlateMap, String path, String password,
+                                           long scope, long page, long per_Page, String token, String searchError,
+                                           List<Search> searchList, int parallelism, JobCheckpoint checkpoint) throws IOException {
+        for (List<Integer> chunk : pending(licensePlateMap, checkpoint, JobCheckpoint.Stage.SEARCH)) {
+            Map<Integer, String> plates = new LinkedHashMap<>();
+            for (Integer i : chunk) {
+                plates.put(i, licensePlateMap.get(i));
+            }
+            Map<String, Data> searchMap = search(plates, path, password, scope, page, per_Page, token, searchError, searchList, parallelism);
+            for (Integer i : chunk) {
+                checkpoint.searched(i, plates.get(i), searchMap.get(plates.get(i)));
+            }
+            checkpoint.save();
+        }
+        return checkpoint.getSearchMap();
+    }
+
+    /**
+     * 未完成的索引 按licensePlateMap的遍历顺序分批
+     */
+    private static List<List<Integer>> pending(Map<Integer, String> licensePlateMap, JobCheckpoint checkpoint, JobCheckpoint.Stage stage) {
+        List<List<Integer>> chunks = new ArrayList<>();
+        List<Integer> chunk = new ArrayList<>();
+        for (Integer i : licensePlateMap.keySet()) {
+            if (i == null || checkpoint.isDone(stage, i)) continue;
+            chunk.add(i);
+            if (chunk.size() == CHECKPOINT_CHUNK) {
+                chunks.add(chunk);
+                chunk = new ArrayList<>();
+            }
+        }
+        if (!chunk.isEmpty()) chunks.add(chunk);
+        return chunks;
+    }
+
+    /**
+     * 从车牌名中提取关键词构建搜索条件
+     *
+     * @return 未匹配到车牌时返回null
+     */
+    static Search buildSearch(String licensePlate, String path, String password, long scope, long page, long per_Page) {
+        String keywords = PlateTokenizer.extract(licensePlate);
+        if (keywords == null) return null;
+        //构建搜索
+        return Builder.of(Search::new)
+                .with(Search::setKeywords, keywords)
+                .with(Search::setParent, path)
+                .with(Search::setPassword, password)
+                .with(Search::setScope, scope)
+                .with(Search::setPage, page)
+                .with(Search::setPer_Page, per_Page)
+                .build();
+    }
+
+    /**
+     * 调用/api/fs/search
+     *
+     * @return 请求失败时返回null
+     */
+    static Data doSearch(Search search, String token) throws InterruptedIOException {
+        LocalIndex index = localIndex;
+        if (index != null) return index.search(search);
+        SearchCache cache = searchCache;
+        if (cache != null) {
+            Data data = cache.get(search);
+            if (data != null) return data;
+        }
+        Result result = post("/api/fs/search", search, token);
+        Data data = result == null ? null : result.getData();
+        if (cache != null && data != null) {
+            cache.put(search, data);
+        }
+        return data;
+    }
+
+    /**
+     * 在不能抛出受检异常的位置调用{@link #doSearch} 被中断时抛出UncheckedIOException
+     */
+    private static Data searchUnchecked(Search search, String token) {
+        try {
+            return doSearch(search, token);
+        } catch (InterruptedIOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * 设置默认会话 用于更换服务地址或连接数 原会话需由调用方关闭
+     */
+    public static void setClient(AListClient aListClient) {
+        client = aListClient;
+    }
+
+    /**
+     * 默认会话 未设置时连接{@link AListClient#DEFAULT_BASE_URL}
+     */
+    public static AListClient getClient() {
+        AListClient current = client;
+        if (current == null) {
+            synchronized (AList.class) {
+                current = client;
+                if (current == null) {
+                    client = current = new AListClient(AListClient.DEFAULT_BASE_URL, null);
+                }
+            }
+        }
+        return current;
+    }
+
+    /**
+     * 设置搜索结果缓存 传null关闭缓存
+     */
+    public static void setSearchCache(SearchCache cache) {
+        searchCache = cache;
+    }
+
+    public static SearchCache getSearchCache() {
+        return searchCache;
+    }
+
+    /**
+     * 设置本地文件索引 设置后搜索直接查询本地索引 传null恢复请求/api/fs/search
+     * 成功的重命名、移动、删除会同步更新到该索引
+     */
+    public static void setLocalIndex(LocalIndex index) {
+        localIndex = index;
+    }
+
+    public static LocalIndex getLocalIndex() {
+        return localIndex;
+    }
+
+    /**
+     * 目录发生变更 使对应的搜索缓存失效
+     */
+    static void invalidate(String... dirs) {
+        SearchCache cache = searchCache;
+        if (cache == null) return;
+        for (String dir : dirs) {
+            cache.invalidate(dir);
+        }
+    }
+
+    /**
+     * 分页流式搜索 按Data.total逐页懒加载 消费当前页时预取下一页
+     * <p>
+     * 下游短路(findFirst、limit等)后不再请求后续页，使用完毕后应关闭流以取消预取
+     *
+     * @param search   搜索条件 page为起始页 per_Page为每页数量
+     * @param token    token
+     * @return 全部分页的文件信息
+     */
+    public static Stream<Content> searchStream(Search search, String token) {
+        PageSpliterator spliterator = new PageSpliterator(search, token);
+        return StreamSupport.stream(spliterator, false).onClose(spliterator::cancel);
+    }
+
+    /**
+     * 分页搜索全部结果并存入紧凑文件信息表 不保留文件信息对象
+     * <p>
+     * 未使用本地索引和搜索缓存时 直接从响应流解析到表中 不生成响应字符串和Data对象
+     *
+     * @param search 搜索条件 page为起始页 per_Page为每页数量
+     * @param token  token
+     * @return 全部分页的文件信息
+     */
+    public static ContentTable searchTable(Search search, String token) {
+        if (localIndex != null || searchCache != null) {
+            try (Stream<Content> stream = searchStream(search, token)) {
+                return stream.collect(ContentTable.collector());
+            }
+        }
+        ContentTable table = new ContentTable();
+        AListClient aListClient = getClient();
+        for (long page = Math.max(1, search.getPage()); ; page++) {
+            int before = table.size();
+            long total;
+            try {
+                total = aListClient.searchInto(withPage(search, page), token, table);
+            } catch (InterruptedIOException e) {
+                throw new UncheckedIOException(e);
+            }
+            if (total == SearchResponseParser.FAILED) {
+                throw new UncheckedIOException(new IOException("搜索[" + search.getKeywords() + "]第" + page + "页失败"));
+            }
+            if (table.size() == before || table.size() >= total) return table;
+        }
+    }
+
+    /**
+     * 复制搜索条件并替换页码
+     */
+    static Search withPage(Search search, long page) {
+        return Builder.of(Search::new)
+                .with(Search::setKeywords, search.getKeywords())
+                .with(Search::setParent, search.getParent())
+                .with(Search::setPassword, search.getPassword())
+                .with(Search::setScope, search.getScope())
+                .with(Search::setPage, page)
+                .with(Search::setPer_Page, search.getPer_Page())
+                .build();
+    }
+
+    /**
+     * 分页搜索迭代器
+     */
+    private static class PageSpliterator extends Spliterators.AbstractSpliterator<Content> {
+        private final Search search;
+        private final String token;
+        /**
+         * 下一次请求的页码
+         */
+        private long page;
+        /**
+         * 已取到的条数
+         */
+        private long fetched;
+        private boolean finished;
+        private Iterator<Content> current = Collections.emptyIterator();
+        private CompletableFuture<Data> next;
+
+        PageSpliterator(Search search, String token) {
+            super(Long.MAX_VALUE, Spliterator.ORDERED | Spliterator.NONNULL);
+            this.search = search;
+            this.token = token;
+            this.page = Math.max(1, search.getPage());
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super Content> action) {
+            while (!current.hasNext()) {
+                if (finished) return false;
+                Data data;
+                if (next != null) {
+                    data = next.join();
+                    next = null;
+                } else {
+                    data = searchUnchecked(withPage(search, page), token);
+                }
+                if (data == null) {
+                    finished = true;
+                    throw new UncheckedIOException(new IOException("搜索[" + search.getKeywords() + "]第" + page + "页失败"));
+                }
+                page++;
+                List<Content> content = data.getContent();
+                if (content == null || content.isEmpty()) {
+                    finished = true;
+                    return false;
+                }
+                fetched += content.size();
+                current = content.iterator();
+                if (fetched < data.getTotal()) {
+                    Search nextPage = withPage(search, page);
+                    next = CompletableFuture.supplyAsync(() -> searchUnchecked(nextPage, token), PREFETCH);
+                } else {
+                    finished = true;
+                }
+            }
+            action.accept(current.next());
+            return true;
+        }
+
+        void cancel() {
+            finished = true;
+            if (next != null) {
+                next.cancel(true);
+                next = null;
+            }
+        }
+    }
+
     /**
      * AList重命名
      *
@@ -88,25 +478,119 @@ public class AList {
      * @throws Exception
      */
     public static void rename(Map<String, Data> searchList, Map<Integer, String> actorNameMap, Map<Integer, String> licensePlateMap, Integer i, String token, String errorRename, Map<String, String> mappings) throws IOException {
-        Map<String, List<Rename>> renameMap = new HashMap<>();
+        rename(searchList, actorNameMap, licensePlateMap, i, token, errorRename, mappings, DEFAULT_PARALLELISM);
+    }
+
+    /**
+     * AList重命名 每个目录只发送该目录自己的去重重命名集合 大目录拆分后并发发送
+     *
+     * @param parallelism 同时发送的请求数
+     */
+    public static void rename(Map<String, Data> searchList, Map<Integer, String> actorNameMap, Map<Integer, String> licensePlateMap, Integer i, String token, String errorRename, Map<String, String> mappings, int parallelism) throws IOException {
+        executeRename(planRename(searchList, actorNameMap, licensePlateMap, i, mappings), token, errorRename, parallelism);
+    }
+
+    /**
+     * AList重命名 直接使用列式任务输入
+     *
+     * @param input 任务输入
+     * @param row   行号
+     */
+    public static void rename(Map<String, Data> searchList, JobInput input, int row, String token, String errorRename, Map<String, String> mappings, int parallelism) throws IOException {
+        executeRename(planRename(searchList.get(input.plate(row)), input.actor(row), mappings), token, errorRename, parallelism);
+    }
+
+    static void executeRename(List<Rename> batchRename, String token, String errorRename, int parallelism) throws IOException {
+        if (batchRename.isEmpty()) return;
+        List<Rename> error = postAll("/api/fs/batch_rename", batchRename, token, parallelism,
+                (rename, success) -> {
+                    invalidate(rename.getSrc_Dir());
+                    if (success) renamed(rename);
+                });
+        if (!error.isEmpty()) {
+            //将失败的请求追加到日志中以备后面重试
+            appendErrors(errorRename, error);
+        }
+    }
+
+    /**
+     * 重命名成功后更新已确认存在的目录和本地索引 重放成功时同样调用
+     */
+    static void renamed(Rename rename) {
+        MoveExecutor.forget(rename.getSrc_Dir(), srcNames(rename));
+        LocalIndex index = localIndex;
+        if (index != null) {
+            for (RenameObject renameObject : rename.getRename_Objects()) {
+                index.rename(rename.getSrc_Dir(), renameObject.getSrc_Name(), renameObject.getNew_Name());
+            }
+        }
+    }
+
+    /**
+     * 可恢复的批量重命名 车牌之间并发 每个车牌完成后标记 已完成的车牌直接跳过
+     *
+     * @param checkpoint 检查点
+     */
+    public static void rename(Map<String, Data> searchList, Map<Integer, String> actorNameMap, Map<Integer, String> licensePlateMap, String token, String errorRename, Map<String, String> mappings, int parallelism, JobCheckpoint checkpoint) throws IOException {
+        ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, parallelism));
+        try {
+            for (List<Integer> chunk : pending(licensePlateMap, checkpoint, JobCheckpoint.Stage.RENAME)) {
+                List<Future<?>> futures = new ArrayList<>();
+                for (Integer i : chunk) {
+                    futures.add(executor.submit(() -> {
+                        rename(searchList, actorNameMap, licensePlateMap, i, token, errorRename, mappings, 1);
+                        checkpoint.done(JobCheckpoint.Stage.RENAME, i);
+                        return null;
+                    }));
+                }
+                for (Future<?> future : futures) {
+                    try {
+                        future.get();
+                    } catch (ExecutionException e) {
+                        System.err.printf("重命名失败：%s%n", e.getCause());
+                    }
+                }
+                checkpoint.save();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("批量重命名被中断");
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * 计算重命名请求 不发送
+     *
+     * @return 按目录去重并拆分后的重命名请求
+     */
+    static List<Rename> planRename(Map<String, Data> searchList, Map<Integer, String> actorNameMap, Map<Integer, String> licensePlateMap, Integer i, Map<String, String> mappings) {
+        return planRename(searchList.get(licensePlateMap.get(i)), actorNameMap.get(i), mappings);
+    }
+
+    /**
+     * 计算一个车牌的重命名请求 不发送
+     *
+     * @param data      该车牌的搜索结果
+     * @param actorName 演员名
+     */
+    static List<Rename> planRename(Data data, String actorName, Map<String, String> mappings) {
         List<Rename> batchRename = new ArrayList<>();
-        Data data = searchList.get(licensePlateMap.get(i));
-        if (data == null) return;
-        Map<String, List<Content>> collect = data.getContent().stream().collect(Collectors.groupingBy(Content::getParent));
-        collect.forEach((key, value) -> {
+        if (data == null || actorName == null) return batchRename;
+        ContentTable table = ContentTable.of(data.getContent());
+        table.forEachParent((key, rows) -> {
             List<RenameObject> renameObjects = new ArrayList<>();
-            Map<String, Content> fileMap = value.stream().collect(Collectors.toMap(Content::getName, Function.identity(), (o1, o2) -> o1));
-            fileMap.forEach((k, v) -> {
-                if (actorNameMap.get(i) != null) {
-                    if (!v.getName().contains(actorNameMap.get(i))) {
-                        RenameObject build = Builder.of(RenameObject::new)
-                                .with(RenameObject::setSrc_Name, v.getName())
-                                .with(RenameObject::setNew_Name, contains(actorNameMap.get(i), v.getName(), mappings))
-                                .build();
-                        renameObjects.add(build);
-                    }
+            for (int row : rows) {
+                String name = table.name(row);
+                if (!name.contains(actorName)) {
+                    RenameObject build = Builder.of(RenameObject::new)
+                            .with(RenameObject::setSrc_Name, name)
+                            .with(RenameObject::setNew_Name, contains(actorName, name, mappings))
+                            .build();
+                    renameObjects.add(build);
                 }
-            });
+            }
             if (!renameObjects.isEmpty()) {
                 batchRename.add(Builder.of(Rename::new)
                         .with(Rename::setRename_Objects, renameObjects)
@@ -114,40 +598,150 @@ public class AList {
                         .build());
             }
         });
-        if (!batchRename.isEmpty()) {
-            collect.forEach((key, value) -> {
-                renameMap.put(key, batchRename);
-            });
+        return RenamePlanner.plan(batchRename);
+    }
+
+    /**
+     * 将失败记录逐条追加到日志并刷盘
+     */
+    private static void appendErrors(String path, List<?> error) throws IOException {
+        ErrorJournal journal = ErrorJournal.of(path);
+        for (Object record : error) {
+            journal.append(record);
+        }
+        journal.flush();
+    }
+
+    /**
+     * 通过默认会话发送POST请求
+     *
+     * @param api 接口路径 例：/api/fs/list
+     * @return 请求或解析失败时返回null
+     */
+    static Result post(String api, Object body, String token) throws InterruptedIOException {
+        return getClient().post(api, body, token);
+    }
+
+    /**
+     * 列出目录下的文件
+     *
+     * @param path     目录
+     * @param password 密码
+     * @param token    token
+     * @return 目录下的全部文件 请求失败返回null
+     */
+    public static Data list(String path, String password, String token) throws InterruptedIOException {
+        ListDir listDir = Builder.of(ListDir::new)
+                .with(ListDir::setPath, path)
+                .with(ListDir::setPassword, password)
+                .with(ListDir::setPage, 1L)
+                .with(ListDir::setPer_Page, 0L)
+                .build();
+        Result result = post("/api/fs/list", listDir, token);
+        return result == null || result.getCode() != 200 ? null : result.getData();
+    }
+
+    /**
+     * 获取单个文件或目录的信息
+     *
+     * @param path     文件或目录路径
+     * @param password 密码
+     * @param token    token
+     * @return 文件或目录信息 parent为所在目录 请求失败返回null
+     */
+    public static Content get(String path, String password, String token) throws InterruptedIOException {
+        ListDir listDir = Builder.of(ListDir::new)
+                .with(ListDir::setPath, path)
+                .with(ListDir::setPassword, password)
+                .build();
+        String response = getClient().postForString("/api/fs/get", listDir, token);
+        if (response == null) return null;
+        JsonNode node = JsonUtil.parseJSONObject(response);
+        if (node == null || node.path("code").asInt() != 200 || !node.path("data").isObject()) return null;
+        Content content = JsonUtil.parseObject(node.path("data").toString(), Content.class);
+        if (content == null) return null;
+        int slash = path.lastIndexOf('/');
+        content.setParent(slash <= 0 ? "/" : path.substring(0, slash));
+        return content;
+    }
+
+    /**
+     * 重命名的原文件名
+     */
+    static List<String> srcNames(Rename rename) {
+        List<String> names = new ArrayList<>(rename.getRename_Objects().size());
+        for (RenameObject renameObject : rename.getRename_Objects()) {
+            names.add(renameObject.getSrc_Name());
         }
-        List<Rename> error = new ArrayList<>();
-        renameMap.forEach((k, v) -> {
-            List<RenameObject> renameList = new ArrayList<>();
-            for (Rename rename : v) {
-                for (RenameObject renameObject : rename.rename_Objects) {
-                    renameList.add(renameObject);
+        return names;
+    }
+
+    /**
+     * 并发发送批量请求
+     *
+     * @param api         接口路径
+     * @param batches     请求体
+     * @param token       token
+     * @param parallelism 同时发送的请求数
+     * @param onComplete  每个请求完成后的回调 参数为请求体和是否成功
+     * @return 失败的请求 保持原顺序
+     */
+    private static <T> List<T> postAll(String api, List<T> batches, String token, int parallelism, BiConsumer<T, Boolean> onComplete) throws IOException {
+        List<T> error = new ArrayList<>();
+        if (batches.isEmpty()) return error;
+        if (parallelism <= 1 || batches.size() == 1) {
+            //不需要并发时在当前线程发送 不创建线程池
+            for (T batch : batches) {
+                boolean success;
+                try {
+                    success = postOne(api, batch, token, onComplete);
+                } catch (RuntimeException e) {
+                    System.err.printf("请求%s失败：%s%n", api, e);
+                    success = false;
                 }
+                if (!success) error.add(batch);
             }
-            String rename = JsonUtil.toJSONString(Builder.of(Rename::new)
-                    .with(Rename::setSrc_Dir, k)
-                    .with(Rename::setRename_Objects, renameList)
-                    .build());
-            Result result = JsonUtil.parseObject(HttpUtil.httpPost("http://localhost:5244/api/fs/batch_rename", rename,
-                    new HashMap<String, String>() {{
-                        this.put("Authorization", token);
-                    }}), Result.class);
-            if (result.getCode() != 200) {
-                error.add(Builder.of(Rename::new)
-                        .with(Rename::setSrc_Dir, k)
-                        .with(Rename::setRename_Objects, renameList)
-                        .build());
+            return error;
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(parallelism, batches.size()));
+        try {
+            List<Future<Boolean>> futures = new ArrayList<>(batches.size());
+            for (T batch : batches) {
+                futures.add(executor.submit(() -> postOne(api, batch, token, onComplete)));
             }
-        });
-        if (!error.isEmpty()) {
-            //将命名失败的写入一个文件中以备后面写入
-            Files.write(new File(errorRename).toPath(), JsonUtil.toByteArray(error));
+            for (int j = 0; j < batches.size(); j++) {
+                boolean success;
+                try {
+                    success = futures.get(j).get();
+                } catch (ExecutionException e) {
+                    System.err.printf("请求%s失败：%s%n", api, e.getCause());
+                    success = false;
+                }
+                if (!success) {
+                    error.add(batches.get(j));
+                }
+            }
+            return error;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("批量请求被中断");
+        } finally {
+            executor.shutdownNow();
         }
     }
 
+    /**
+     * 发送一个请求并回调
+     *
+     * @return 是否成功
+     */
+    private static <T> boolean postOne(String api, T batch, String token, BiConsumer<T, Boolean> onComplete) throws InterruptedIOException {
+        Result result = post(api, batch, token);
+        boolean success = result != null && result.getCode() == 200;
+        onComplete.accept(batch, success);
+        return success;
+    }
+
     /**
      * 官方重命名
      *
@@ -158,29 +752,69 @@ public class AList {
      * @return 可用于生成一个重命名模版
      */
     public static List<OfficialRename> rename(Map<String, Data> searchList, Map<Integer, String> actorNameMap, Map<Integer, String> licensePlateMap, Integer i, Map<String, String> mappings, List<OfficialRename> officialRenames) {
-        Data data = searchList.get(licensePlateMap.get(i));
-        if (data == null) return null;
-        Map<String, List<Content>> collect = data.getContent().stream().collect(Collectors.groupingBy(Content::getParent));
-        collect.forEach((key, value) -> {
-            Map<String, Content> fileMap = value.stream().collect(Collectors.toMap(Content::getName, Function.identity(), (o1, o2) -> o1));
-            fileMap.forEach((k, v) -> {
-                if (actorNameMap.get(i) != null) {
-                    if (!v.getName().contains(actorNameMap.get(i))) {
-                        OfficialRename build = Builder.of(OfficialRename::new)
-                                .with(OfficialRename::setSrc_Name, v.getName())
-                                .with(OfficialRename::setNew_Name, contains(actorNameMap.get(i), v.getName(), mappings))
-                                .build();
-                        officialRenames.add(build);
-                    }
-                }
-            });
-        });
-        for (OfficialRename officialRename : officialRenames) {
-            officialRename.setNew_Name(officialRename.getNew_Name().split("\\.")[0]);
-        }
+        if (rename(searchList, actorNameMap, licensePlateMap, i, mappings, (Consumer<OfficialRename>) officialRenames::add) < 0) return null;
         return officialRenames;
     }
 
+    /**
+     * 官方重命名 每生成一行交给sink 不在内存中累积
+     *
+     * @param sink 接收重命名行 例：{@link OfficialRenameExporter}
+     * @return 生成的行数 没有搜索结果时返回-1
+     */
+    public static int rename(Map<String, Data> searchList, Map<Integer, String> actorNameMap, Map<Integer, String> licensePlateMap, Integer i, Map<String, String> mappings, Consumer<OfficialRename> sink) {
+        return rename(searchList.get(licensePlateMap.get(i)), actorNameMap.get(i), mappings, sink);
+    }
+
+    private static int rename(Data data, String actorName, Map<String, String> mappings, Consumer<OfficialRename> sink) {
+        if (data == null) return -1;
+        if (actorName == null || data.getContent() == null) return 0;
+        //同一目录下同名文件只取一个
+        Set<String> seen = new HashSet<>();
+        int rows = 0;
+        for (Content v : data.getContent()) {
+            if (v.getName().contains(actorName) || !seen.add(v.getParent() + "/" + v.getName())) continue;
+            String newName = contains(actorName, v.getName(), mappings);
+            int dot = newName.indexOf('.');
+            sink.accept(Builder.of(OfficialRename::new)
+                    .with(OfficialRename::setSrc_Name, v.getName())
+                    .with(OfficialRename::setNew_Name, dot < 0 ? newName : newName.substring(0, dot))
+                    .build());
+            rows++;
+        }
+        return rows;
+    }
+
+    /**
+     * 导出所有车牌的官方重命名模版 边生成边写入
+     *
+     * @param file 导出文件 .csv为CSV 其余为xlsx
+     * @return 导出的行数
+     */
+    public static long exportOfficialRename(Map<String, Data> searchList, Map<Integer, String> actorNameMap, Map<Integer, String> licensePlateMap, Map<String, String> mappings, File file) {
+        try (OfficialRenameExporter exporter = new OfficialRenameExporter(file)) {
+            for (Integer i : licensePlateMap.keySet()) {
+                rename(searchList, actorNameMap, licensePlateMap, i, mappings, exporter);
+            }
+            return exporter.getRows();
+        }
+    }
+
+    /**
+     * 导出115官方重命名模版 直接使用列式任务输入
+     *
+     * @param input 任务输入
+     * @return 导出的行数
+     */
+    public static long exportOfficialRename(Map<String, Data> searchList, JobInput input, Map<String, String> mappings, File file) {
+        try (OfficialRenameExporter exporter = new OfficialRenameExporter(file)) {
+            for (int row = 0; row < input.size(); row++) {
+                rename(searchList.get(input.plate(row)), input.actor(row), mappings, exporter);
+            }
+            return exporter.getRows();
+        }
+    }
+
     /**
      * 处理文件名称
      *
@@ -190,18 +824,40 @@ public class AList {
      * @return
      */
     private static String contains(String actorName, String srcName, Map<String, String> mappings) {
-        String[] split = srcName.split("\\.");
-        if (actorName == null) return split[0];
-        if (srcName.contains(actorName)) return split[0];
+        int dot = srcName.indexOf('.');
+        String name = dot < 0 ? srcName : srcName.substring(0, dot);
+        if (actorName == null) return name;
+        if (srcName.contains(actorName)) return name;
         if (mappings == null) return srcName;
-        StringBuffer sb = new StringBuffer();
-        mappings.forEach((mapping, value) -> {
-            if (srcName.split("(\\b(?:[a-zA-Z]*[-_\\d\\sa-zA-Z]*[-_\\d]))")[0].contains(mapping)) {
-                sb.append(value).append(" ");
-            }
-        });
-        String fileName = srcName.replaceAll(srcName.split("(\\b(?:[a-zA-Z]*[-_\\d\\sa-zA-Z]*[-_\\d]))")[0], "") + sb.toString();
-        return ("".equals(sb.toString()) ? split[0] + " " + actorName : fileName) + "." + split[1];
+        int next = dot < 0 ? -1 : srcName.indexOf('.', dot + 1);
+        String extension = dot < 0 ? "" : srcName.substring(dot + 1, next < 0 ? srcName.length() : next);
+        //车牌之前的部分
+        String prefix = srcName.substring(0, PlateTokenizer.prefixEnd(srcName));
+        StringBuilder sb = new StringBuilder();
+        mappingMatcher(mappings).appendMatches(prefix, sb);
+        String fileName = srcName.replace(prefix, "") + sb.toString();
+        String newName = sb.length() == 0 ? name + " " + actorName : fileName;
+        //没有扩展名时不追加点号
+        return extension.isEmpty() ? newName : newName + "." + extension;
+    }
+
+    /**
+     * 获取映射表编译后的匹配器 映射表被替换或条目数变化时重新编译
+     */
+    private static MappingMatcher mappingMatcher(Map<String, String> mappings) {
+        MappingMatcher matcher = mappingMatcher;
+        if (matcher == null || !matcher.isCompiledFrom(mappings)) {
+            matcher = MappingMatcher.compile(mappings);
+            mappingMatcher = matcher;
+        }
+        return matcher;
+    }
+
+    /**
+     * 映射表内容被原地修改(条目数不变)后调用 下次重命名时重新编译
+     */
+    public static void refreshMappings() {
+        mappingMatcher = null;
     }
 
     /**
@@ -214,36 +870,73 @@ public class AList {
      * @param errorMove    移动失败的文件路径
      */
     public static void move(Map<String, Data> searchList, String srcPrefix, String targetPrefix, String token, String errorMove) throws Exception {
+        move(searchList, srcPrefix, targetPrefix, token, errorMove, DEFAULT_PARALLELISM);
+    }
+
+    /**
+     * 网盘文件移动 不同目标目录并发 同一目标目录串行
+     *
+     * @param parallelism 同时处理的目标目录数
+     */
+    public static void move(Map<String, Data> searchList, String srcPrefix, String targetPrefix, String token, String errorMove, int parallelism) throws IOException {
         List<Move> batchMove = new ArrayList<>();
-        searchList.forEach((k, v) -> {
-            //键-路径
-            Map<String, List<Content>> collect = v.getContent().stream().collect(Collectors.groupingBy(Content::getParent));
-            collect.forEach((key, value) -> {
-                List<Content> moveList = value.stream().filter(move -> !move.getParent().contains(targetPrefix))
-                        .collect(Collectors.toList());
-
-                if (!moveList.isEmpty()) {
-                    Move move = Builder.of(Move::new)
-                            .with(Move::setSrc_dir, key)
-                            .with(Move::setDst_dir, key.replace(srcPrefix, targetPrefix))
-                            .with(Move::setNames, moveList.stream().map(Content::getName).collect(Collectors.toList()))
-                            .build();
-                    batchMove.add(move);
+        searchList.forEach((k, v) -> batchMove.addAll(planMove(v, srcPrefix, targetPrefix)));
+        executeMove(batchMove, token, errorMove, parallelism);
+    }
+
+    /**
+     * 可恢复的文件移动 每{@link #CHECKPOINT_CHUNK}个车牌为一批 每批完成后写入检查点 已完成的车牌直接跳过
+     * 重命名后文件名已变化 移动前应重新搜索 并使用新的检查点目录保存新的搜索结果
+     * 移动失败的车牌写入errorMove后同样标记为完成 恢复时不会再次移动 需通过{@link AListReplay#replayMove}重放errorMove
+     *
+     * @param checkpoint 检查点
+     */
+    public static void move(Map<String, Data> searchList, Map<Integer, String> licensePlateMap, String srcPrefix, String targetPrefix, String token, String errorMove, int parallelism, JobCheckpoint checkpoint) throws IOException {
+        for (List<Integer> chunk : pending(licensePlateMap, checkpoint, JobCheckpoint.Stage.MOVE)) {
+            List<Move> batchMove = new ArrayList<>();
+            Set<String> planned = new HashSet<>();
+            for (Integer i : chunk) {
+                String licensePlate = licensePlateMap.get(i);
+                Data data = searchList.get(licensePlate);
+                if (data != null && planned.add(licensePlate)) {
+                    batchMove.addAll(planMove(data, srcPrefix, targetPrefix));
                 }
-            });
-        });
-        List<Move> error = new ArrayList<>();
-        batchMove.forEach(m -> {
-            Result result = JsonUtil.parseObject(HttpUtil.httpPost("http://localhost:5244/api/fs/batch_move", JsonUtil.toJSONString(m), new HashMap<String, String>() {{
-                this.put("Authorization", token);
-            }}), Result.class);
-            if (result.getCode() != 200) {
-                error.add(m);
             }
+            executeMove(batchMove, token, errorMove, parallelism);
+            for (Integer i : chunk) {
+                checkpoint.done(JobCheckpoint.Stage.MOVE, i);
+            }
+            checkpoint.save();
+        }
+    }
+
+    /**
+     * 网盘文件移动 直接使用紧凑文件信息表 适合整盘等大结果集
+     *
+     * @param table 文件信息表 例：{@link #searchTable(Search, String)}
+     */
+    public static void move(ContentTable table, String srcPrefix, String targetPrefix, String token, String errorMove, int parallelism) throws IOException {
+        executeMove(planMove(table, srcPrefix, targetPrefix), token, errorMove, parallelism);
+    }
+
+    static void executeMove(List<Move> batchMove, String token, String errorMove, int parallelism) throws IOException {
+        List<Move> error = MoveExecutor.execute(batchMove, token, parallelism, (m, success) -> {
+            invalidate(m.getSrc_dir(), m.getDst_dir());
+            if (success) moved(m);
         });
         if (!error.isEmpty()) {
-            //将命名失败的写入一个文件中以备后面写入
-            Files.write(new File(errorMove).toPath(), JsonUtil.toByteArray(error));
+            //将失败的请求追加到日志中以备后面重试
+            appendErrors(errorMove, error);
+        }
+    }
+
+    /**
+     * 移动成功后更新本地索引 重放成功时同样调用
+     */
+    static void moved(Move move) {
+        LocalIndex index = localIndex;
+        if (index != null) {
+            index.move(move.getSrc_dir(), move.getDst_dir(), move.getNames());
         }
     }
 
@@ -257,35 +950,114 @@ public class AList {
      */
     public static void delete(Map<String, Data> searchList, List<String> excludeName, String token, String errorDelete) throws Exception {
         List<Delete> batchDelete = new ArrayList<>();
-        searchList.forEach((k, v) -> {
-            if (v.getContent().size() > 1) {
-                List<Content> contents = v.getContent();
-                Map<String, List<Content>> collect = v.getContent().stream().collect(Collectors.groupingBy(Content::getParent));
-                collect.forEach((key, value) -> {
-                    List<String> names = value.stream().filter(content -> !excludeName.contains(content.getName()))
-                            .map(Content::getName).collect(Collectors.toList());
-                    Delete delete = Builder.of(Delete::new)
-                            .with(Delete::setDir, key)
-                            .with(Delete::setNames, names)
-                            .build();
-                    batchDelete.add(delete);
-                });
-            }
-        });
+        Set<String> exclude = new HashSet<>(excludeName);
+        searchList.forEach((k, v) -> batchDelete.addAll(planDelete(v, exclude)));
         List<Delete> error = new ArrayList<>();
-        batchDelete.forEach(d -> {
-            Result result = JsonUtil.parseObject(HttpUtil.httpPost("http://localhost:5244/api/fs/remove", JsonUtil.toJSONString(d), new HashMap<String, String>() {{
-                this.put("Authorization", token);
-            }}), Result.class);
-            if (result.getCode() != 200) {
+        for (Delete d : batchDelete) {
+            Result result = post("/api/fs/remove", d, token);
+            invalidate(d.getDir());
+            if (result == null || result.getCode() != 200) {
                 error.add(d);
+            } else {
+                deleted(d);
+            }
+        }
+        if (!error.isEmpty()) {
+            //将失败的请求追加到日志中以备后面重试
+            appendErrors(errorDelete, error);
+        }
+    }
+
+    /**
+     * 删除成功后更新已确认存在的目录和本地索引 重放成功时同样调用
+     */
+    static void deleted(Delete delete) {
+        MoveExecutor.forget(delete.getDir(), delete.getNames());
+        LocalIndex index = localIndex;
+        if (index != null) {
+            index.remove(delete.getDir(), delete.getNames());
+        }
+    }
+
+    /**
+     * 网盘删除重复文件 按大小、规范化文件名及可选的文件内容哈希判断重复 每组保留一个
+     *
+     * @param searchList  搜索到的集合
+     * @param excludeName 优先保留的文件名
+     * @param hash        是否读取文件首尾部分内容确认重复
+     * @param token       token
+     * @param errorDelete 删除失败的文件路径
+     */
+    public static void deleteDuplicates(Map<String, Data> searchList, List<String> excludeName, boolean hash, String token, String errorDelete) throws IOException {
+        List<Delete> batchDelete = DuplicateFinder.find(searchList, excludeName, hash, token, DEFAULT_PARALLELISM);
+        List<Delete> error = postAll("/api/fs/remove", batchDelete, token, DEFAULT_PARALLELISM, (d, success) -> {
+            invalidate(d.getDir());
+            if (success) MoveExecutor.forget(d.getDir(), d.getNames());
+            LocalIndex index = localIndex;
+            if (success && index != null) {
+                index.remove(d.getDir(), d.getNames());
             }
         });
         if (!error.isEmpty()) {
-            Files.write(new File(errorDelete).toPath(), JsonUtil.toByteArray(error));
+            //将失败的请求追加到日志中以备后面重试
+            appendErrors(errorDelete, error);
         }
     }
 
+    /**
+     * 计算一个车牌搜索结果的移动请求 不发送
+     */
+    static List<Move> planMove(Data data, String srcPrefix, String targetPrefix) {
+        return planMove(ContentTable.of(data.getContent()), srcPrefix, targetPrefix);
+    }
+
+    /**
+     * 计算移动请求 每个目录一个 已在目标路径下的目录跳过
+     */
+    static List<Move> planMove(ContentTable table, String srcPrefix, String targetPrefix) {
+        List<Move> batchMove = new ArrayList<>();
+        //键-路径
+        table.forEachParent((key, rows) -> {
+            if (key.contains(targetPrefix)) return;
+            Move move = Builder.of(Move::new)
+                    .with(Move::setSrc_dir, key)
+                    .with(Move::setDst_dir, key.replace(srcPrefix, targetPrefix))
+                    .with(Move::setNames, table.names(rows))
+                    .build();
+            batchMove.add(move);
+        });
+        return batchMove;
+    }
+
+    /**
+     * 计算一个车牌搜索结果的删除请求 不发送
+     */
+    static List<Delete> planDelete(Data data, Set<String> excludeName) {
+        return planDelete(ContentTable.of(data.getContent()), excludeName);
+    }
+
+    /**
+     * 计算删除请求 每个目录一个 保留excludeName中的文件
+     */
+    static List<Delete> planDelete(ContentTable table, Set<String> excludeName) {
+        List<Delete> batchDelete = new ArrayList<>();
+        if (table.size() > 1) {
+            table.forEachParent((key, rows) -> {
+                List<String> names = new ArrayList<>(rows.length);
+                for (int row : rows) {
+                    String name = table.name(row);
+                    if (!excludeName.contains(name)) names.add(name);
+                }
+                Delete delete = Builder.of(Delete::new)
+                        .with(Delete::setDir, key)
+                        .with(Delete::setNames, names)
+                        .build();
+                batchDelete.add(delete);
+            });
+        }
+        return batchDelete;
+    }
+
     /**
      * 搜索文件入参
      */
@@ -364,6 +1136,119 @@ public class AList {
         }
     }
 
+    /**
+     * 搜索失败日志中的记录 在搜索条件之外记录原车牌(licensePlateMap中的值) 重放结果可直接用于重命名、移动
+     */
+    public static class FailedSearch extends Search {
+        /**
+         * 原车牌 旧日志中没有该字段
+         */
+        private String licensePlate;
+
+        static FailedSearch of(Search search, String licensePlate) {
+            return Builder.of(FailedSearch::new)
+                    .with(FailedSearch::setKeywords, search.getKeywords())
+                    .with(FailedSearch::setParent, search.getParent())
+                    .with(FailedSearch::setPassword, search.getPassword())
+                    .with(FailedSearch::setScope, search.getScope())
+                    .with(FailedSearch::setPage, search.getPage())
+                    .with(FailedSearch::setPer_Page, search.getPer_Page())
+                    .with(FailedSearch::setLicensePlate, licensePlate)
+                    .build();
+        }
+
+        public String getLicensePlate() {
+            return licensePlate;
+        }
+
+        public void setLicensePlate(String licensePlate) {
+            this.licensePlate = licensePlate;
+        }
+    }
+
+    /**
+     * 列出目录入参
+     */
+    public static class ListDir {
+        /**
+         * 目录
+         */
+        private String path;
+        /**
+         * 密码
+         */
+        private String password;
+        /**
+         * 页数
+         */
+        private long page;
+        /**
+         * 每页数目 0为全部
+         */
+        private long per_Page;
+        /**
+         * 是否强制刷新
+         */
+        private boolean refresh;
+
+        public String getPath() {
+            return path;
+        }
+
+        public void setPath(String path) {
+            this.path = path;
+        }
+
+        public String getPassword() {
+            return password;
+        }
+
+        public void setPassword(String password) {
+            this.password = password;
+        }
+
+        public long getPage() {
+            return page;
+        }
+
+        public void setPage(long page) {
+            this.page = page;
+        }
+
+        public long getPer_Page() {
+            return per_Page;
+        }
+
+        public void setPer_Page(long per_Page) {
+            this.per_Page = per_Page;
+        }
+
+        public boolean getRefresh() {
+            return refresh;
+        }
+
+        public void setRefresh(boolean refresh) {
+            this.refresh = refresh;
+        }
+    }
+
+    /**
+     * 新建目录入参
+     */
+    public static class MakeDir {
+        /**
+         * 目录 上级目录不存在时一并创建
+         */
+        private String path;
+
+        public String getPath() {
+            return path;
+        }
+
+        public void setPath(String path) {
+            this.path = path;
+        }
+    }
 
     /**
      * 响应结果
@@ -446,6 +1331,7 @@ public class AList {
         /**
          * 是否是文件夹
          */
+        @JsonAlias("is_dir")
         private boolean isDir;
         /**
          * 文件名
@@ -463,6 +1349,10 @@ public class AList {
          * 类型
          */
         private long type;
+        /**
+         * 修改时间
+         */
+        private String modified;
 
         public boolean getIsDir() {
             return isDir;
@@ -504,6 +1394,14 @@ public class AList {
             this.type = value;
         }
 
+        public String getModified() {
+            return modified;
+        }
+
+        public void setModified(String value) {
+            this.modified = value;
+        }
+
         @Override
         public String toString() {
             return "Content{" +
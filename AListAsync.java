@@ -0,0 +1,144 @@
+package cn.yl.common.utils;
+
+import java.lang.reflect.Method;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * @author YL
+ * @Desc AList异步操作 搜索、重命名、移动、删除均返回CompletableFuture 可按车牌串成流水线 例：
+ * <pre>
+ * AListAsync.search(plate, "/", null, 0, 1, 100, token, searchError)
+ *         .thenCompose(data -> AListAsync.rename(data, actorName, mappings, token, errorRename))
+ *         .thenCompose(v -> AListAsync.search(plate, "/", null, 0, 1, 100, token, searchError))
+ *         .thenCompose(data -> AListAsync.move(data, srcPrefix, targetPrefix, token, errorMove));
+ * </pre>
+ * 默认在虚拟线程上执行(Java 21+) 每个请求一个虚拟线程 等待响应时不占用载体线程 上万个车牌可同时进行
+ * 更低版本退化为{@link AListClient#DEFAULT_MAX_CONNECTIONS}个线程的线程池 实际发出的请求数仍由{@link AListClient}的并发限制控制
+ * @since 2024-11-01 20:33:27
+ */
+@SuppressWarnings("all")
+public abstract class AListAsync {
+
+    private static volatile Executor executor;
+
+    /**
+     * 设置执行器 原执行器需由调用方关闭
+     */
+    public static void setExecutor(Executor asyncExecutor) {
+        executor = asyncExecutor;
+    }
+
+    /**
+     * 执行器 未设置时优先使用虚拟线程
+     */
+    public static Executor getExecutor() {
+        Executor current = executor;
+        if (current == null) {
+            synchronized (AListAsync.class) {
+                current = executor;
+                if (current == null) {
+                    executor = current = defaultExecutor();
+                }
+            }
+        }
+        return current;
+    }
+
+    /**
+     * 每个任务一个虚拟线程 当前JVM不支持时使用守护线程池
+     */
+    static Executor defaultExecutor() {
+        try {
+            Method method = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (Executor) method.invoke(null);
+        } catch (ReflectiveOperationException e) {
+            AtomicInteger count = new AtomicInteger();
+            return Executors.newFixedThreadPool(AListClient.DEFAULT_MAX_CONNECTIONS, r -> {
+                Thread thread = new Thread(r, "alist-async-" + count.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+
+    /**
+     * 搜索一个车牌
+     *
+     * @param searchError 搜索失败的文件路径 没有结果时追加到该日志
+     * @return 搜索结果 没有结果或车牌无法识别时为null
+     */
+    public static CompletableFuture<AList.Data> search(String licensePlate, String path, String password,
+                                                       long scope, long page, long per_Page, String token, String searchError) {
+        return supply(() -> {
+            AList.Search search = AList.buildSearch(licensePlate, path, password, scope, page, per_Page);
+            if (search == null) return null;
+            AList.Data data = AList.doSearch(search, token);
+            if (data != null && data.getContent() != null && !data.getContent().isEmpty()) return data;
+            //并发的flush在日志锁上排队 一次刷盘覆盖之前全部追加的记录 排在后面的没有未刷盘记录时直接返回
+            ErrorJournal journal = ErrorJournal.of(searchError);
+            journal.append(AList.FailedSearch.of(search, licensePlate));
+            journal.flush();
+            return null;
+        });
+    }
+
+    /**
+     * 重命名一个车牌搜索到的文件
+     *
+     * @param data      搜索结果 为null时直接完成
+     * @param actorName 演员名
+     */
+    public static CompletableFuture<Void> rename(AList.Data data, String actorName, Map<String, String> mappings, String token, String errorRename) {
+        return supply(() -> {
+            AList.executeRename(AList.planRename(data, actorName, mappings), token, errorRename, 1);
+            return null;
+        });
+    }
+
+    /**
+     * 移动一个车牌搜索到的文件
+     *
+     * @param data 搜索结果 为null时直接完成
+     */
+    public static CompletableFuture<Void> move(AList.Data data, String srcPrefix, String targetPrefix, String token, String errorMove) {
+        return supply(() -> {
+            if (data != null) AList.executeMove(AList.planMove(data, srcPrefix, targetPrefix), token, errorMove, 1);
+            return null;
+        });
+    }
+
+    /**
+     * 删除一个车牌搜索到的文件
+     *
+     * @param data        搜索结果 为null时直接完成
+     * @param excludeName 保留的文件名
+     */
+    public static CompletableFuture<Void> delete(AList.Data data, List<String> excludeName, String token, String errorDelete) {
+        return supply(() -> {
+            if (data != null) AList.delete(Collections.singletonMap("", data), excludeName, token, errorDelete);
+            return null;
+        });
+    }
+
+    /**
+     * 在执行器上运行 异常通过返回的future传递
+     */
+    private static <T> CompletableFuture<T> supply(Callable<T> task) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        getExecutor().execute(() -> {
+            try {
+                future.complete(task.call());
+            } catch (Throwable e) {
+                future.completeExceptionally(e);
+            }
+        });
+        return future;
+    }
+}
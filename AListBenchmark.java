@@ -0,0 +1,168 @@
+package cn.yl.common.utils;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * @author YL
+ * @Desc AList端到端压测 基于{@link AListStubServer} 完整执行 搜索→重命名→搜索→移动→搜索→删除
+ * <p>
+ * 规模按文件数指定 每个车牌两个文件(视频和封面) 车牌数为文件数的一半 输出每个阶段的耗时、每秒处理的车牌数 以及各接口的p50/p99耗时
+ * 用法：java cn.yl.common.utils.AListBenchmark [延迟毫秒] [失败比例] [并发数] [文件数...]
+ * 默认：0 0 16 10000 100000 1000000 100万文件需要较大的堆 例：-Xmx8g
+ * @since 2024-10-27 21:40:12
+ */
+@SuppressWarnings("all")
+public class AListBenchmark {
+
+    private static final String SRC = "/src";
+
+    private static final String DST = "/dst";
+
+    private static final String ACTOR = "actor";
+
+    /**
+     * 每个目录的车牌数
+     */
+    private static final int PLATES_PER_DIR = 1000;
+
+    /**
+     * 每个车牌的文件数 视频和封面
+     */
+    private static final int FILES_PER_PLATE = 2;
+
+    public static void main(String[] args) throws Exception {
+        //关闭Nagle算法 见AListStubServer 需在首次创建服务之前设置
+        if (System.getProperty("sun.net.httpserver.nodelay") == null) {
+            System.setProperty("sun.net.httpserver.nodelay", "true");
+        }
+        long latencyMillis = args.length > 0 ? Long.parseLong(args[0]) : 0;
+        double errorRate = args.length > 1 ? Double.parseDouble(args[1]) : 0;
+        int parallelism = args.length > 2 ? Integer.parseInt(args[2]) : 16;
+        List<Integer> sizes = new ArrayList<>();
+        for (int i = 3; i < args.length; i++) {
+            sizes.add(Integer.parseInt(args[i]));
+        }
+        if (sizes.isEmpty()) {
+            sizes.add(10_000);
+            sizes.add(100_000);
+            sizes.add(1_000_000);
+        }
+        for (int files : sizes) {
+            run(files, latencyMillis, errorRate, parallelism);
+        }
+    }
+
+    /**
+     * 执行一轮完整流程
+     *
+     * @param files 文件数 每个车牌{@link #FILES_PER_PLATE}个文件
+     */
+    public static void run(int files, long latencyMillis, double errorRate, int parallelism) throws IOException {
+        int plates = Math.max(1, files / FILES_PER_PLATE);
+        File errors = Files.createTempDirectory("alist-benchmark").toFile();
+        AListClient previous = AList.getClient();
+        try (AListStubServer server = new AListStubServer(0, parallelism * 2).start();
+             AListClient client = new AListClient(server.getBaseUrl(), null, parallelism * 2)) {
+            Map<Integer, String> licensePlateMap = new LinkedHashMap<>();
+            Map<Integer, String> actorNameMap = new HashMap<>();
+            for (int i = 0; i < plates; i++) {
+                String plate = String.format("XYZ-%07d", i);
+                String dir = SRC + "/d" + (i / PLATES_PER_DIR);
+                server.addFile(dir, plate + ".mp4", 1L << 30);
+                server.addFile(dir, plate + ".jpg", 1L << 16);
+                licensePlateMap.put(i, plate);
+                actorNameMap.put(i, ACTOR);
+            }
+            server.setLatencyMillis(latencyMillis);
+            server.setErrorRate(errorRate);
+            for (String api : new String[]{"/api/fs/search", "/api/fs/list", "/api/fs/mkdir", "/api/fs/batch_rename", "/api/fs/batch_move", "/api/fs/remove"}) {
+                client.setLimiter(api, new ConcurrencyLimiter(parallelism, 1, parallelism * 2));
+            }
+            AList.setClient(client);
+            System.out.printf("==== %d车牌 %d文件 延迟%dms 失败比例%.3f 并发%d ====%n", plates, server.size(), latencyMillis, errorRate, parallelism);
+
+            AtomicReference<Map<String, AList.Data>> searchMap = new AtomicReference<>();
+            String searchError = new File(errors, "search").getPath();
+            phase("search", plates, () -> searchMap.set(search(licensePlateMap, searchError, parallelism)));
+            phase("rename", plates, () -> rename(searchMap.get(), actorNameMap, licensePlateMap, new File(errors, "rename").getPath(), parallelism));
+            phase("search", plates, () -> searchMap.set(search(licensePlateMap, searchError, parallelism)));
+            phase("move", plates, () -> AList.move(searchMap.get(), SRC, DST, null, new File(errors, "move").getPath(), parallelism));
+            phase("search", plates, () -> searchMap.set(search(licensePlateMap, searchError, parallelism)));
+            phase("delete", plates, () -> {
+                //只保留视频
+                List<String> excludeName = new ArrayList<>();
+                searchMap.get().forEach((k, v) -> v.getContent().forEach(c -> {
+                    if (c.getName().endsWith(".mp4")) excludeName.add(c.getName());
+                }));
+                AList.delete(searchMap.get(), excludeName, null, new File(errors, "delete").getPath());
+            });
+            System.out.printf("剩余文件和目录：%d%n", server.size());
+            client.getMetrics().getEndpoints().forEach((api, endpoint) -> System.out.printf("%-22s %s%n", api, endpoint));
+        } finally {
+            AList.setClient(previous);
+            for (String journal : new String[]{"search", "rename", "move", "delete"}) {
+                ErrorJournal.reset(new File(errors, journal).getPath());
+            }
+            errors.delete();
+        }
+    }
+
+    private static Map<String, AList.Data> search(Map<Integer, String> licensePlateMap, String searchError, int parallelism) throws IOException {
+        return AList.search(licensePlateMap, "/", null, 0, 1, 100, null, searchError, new ArrayList<>(), parallelism);
+    }
+
+    /**
+     * 按车牌并发重命名 每个车牌内串行
+     */
+    private static void rename(Map<String, AList.Data> searchMap, Map<Integer, String> actorNameMap, Map<Integer, String> licensePlateMap,
+                               String errorRename, int parallelism) throws Exception {
+        Map<String, String> mappings = new HashMap<>();
+        ExecutorService executor = Executors.newFixedThreadPool(parallelism);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (Integer i : licensePlateMap.keySet()) {
+                futures.add(executor.submit(() -> {
+                    AList.rename(searchMap, actorNameMap, licensePlateMap, i, null, errorRename, mappings, 1);
+                    return null;
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("重命名被中断");
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static void phase(String name, int plates, Phase phase) throws IOException {
+        long start = System.nanoTime();
+        try {
+            phase.run();
+        } catch (IOException | RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new IOException(name + "失败", e);
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.out.printf("%-8s %8.2fs %10.0f 车牌/s%n", name, seconds, plates / seconds);
+    }
+
+    private interface Phase {
+        void run() throws Exception;
+    }
+}
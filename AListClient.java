@@ -0,0 +1,332 @@
+package cn.yl.common.utils;
+
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpStatus;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpPost;
+import org.apache.http.entity.ContentType;
+import org.apache.http.entity.StringEntity;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.util.EntityUtils;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @author YL
+ * @Desc AList会话 保存服务地址、token和一个长连接池 所有请求复用连接 避免每次请求重新建立TCP连接
+ * <p>
+ * 每个接口单独限制同时进行的请求数 根据耗时和返回码自适应调整 见{@link ConcurrencyLimiter}
+ * 每个请求的耗时、返回码、字节数和文件数记录在{@link #getMetrics()}
+ * 线程安全 一个服务地址创建一个即可 使用完毕后关闭
+ * @since 2024-10-24 20:12:38
+ */
+@SuppressWarnings("all")
+public class AListClient implements Closeable {
+
+    /**
+     * 默认服务地址
+     */
+    public static final String DEFAULT_BASE_URL = "http://localhost:5244";
+
+    /**
+     * 默认最大连接数
+     */
+    public static final int DEFAULT_MAX_CONNECTIONS = 32;
+
+    /**
+     * 空闲连接保留时间(秒)
+     */
+    private static final long IDLE_SECONDS = 30;
+
+    private final String baseUrl;
+
+    private final String token;
+
+    private final PoolingHttpClientConnectionManager connectionManager;
+
+    private final CloseableHttpClient httpClient;
+
+    /**
+     * 每个接口的自适应并发限制
+     */
+    private final Map<String, ConcurrencyLimiter> limiters = new ConcurrentHashMap<>();
+
+    private final int maxConnections;
+
+    private final AListMetrics metrics = new AListMetrics();
+
+    /**
+     * 已确认存在的目录 见{@link MoveExecutor#mkdir(String, String)}
+     */
+    private final Set<String> knownDirs = ConcurrentHashMap.newKeySet();
+
+    public AListClient(String baseUrl, String token) {
+        this(baseUrl, token, DEFAULT_MAX_CONNECTIONS);
+    }
+
+    /**
+     * @param baseUrl        服务地址 例：http://localhost:5244
+     * @param token          token
+     * @param maxConnections 最大连接数
+     */
+    public AListClient(String baseUrl, String token, int maxConnections) {
+        this.baseUrl = baseUrl.endsWith("/") ? baseUrl.substring(0, baseUrl.length() - 1) : baseUrl;
+        this.token = token;
+        this.maxConnections = Math.max(1, maxConnections);
+        this.connectionManager = new PoolingHttpClientConnectionManager();
+        //只连接一个服务 单路由上限与总上限相同
+        connectionManager.setMaxTotal(Math.max(1, maxConnections));
+        connectionManager.setDefaultMaxPerRoute(Math.max(1, maxConnections));
+        connectionManager.setValidateAfterInactivity(2000);
+        RequestConfig requestConfig = RequestConfig.custom().setSocketTimeout(100000).setConnectTimeout(100000).build();
+        this.httpClient = HttpClients.custom()
+                .setConnectionManager(connectionManager)
+                .setDefaultRequestConfig(requestConfig)
+                .evictExpiredConnections()
+                .evictIdleConnections(IDLE_SECONDS, TimeUnit.SECONDS)
+                .build();
+    }
+
+    /**
+     * 搜索
+     *
+     * @return 请求失败返回null
+     */
+    public AList.Data search(AList.Search search) throws InterruptedIOException {
+        AList.Result result = post("/api/fs/search", search);
+        return result == null ? null : result.getData();
+    }
+
+    /**
+     * 列出目录下的全部文件
+     *
+     * @return 请求失败返回null
+     */
+    public AList.Data list(String path, String password) throws InterruptedIOException {
+        AList.ListDir listDir = Builder.of(AList.ListDir::new)
+                .with(AList.ListDir::setPath, path)
+                .with(AList.ListDir::setPassword, password)
+                .with(AList.ListDir::setPage, 1L)
+                .with(AList.ListDir::setPer_Page, 0L)
+                .build();
+        AList.Result result = post("/api/fs/list", listDir);
+        return result == null || result.getCode() != 200 ? null : result.getData();
+    }
+
+    /**
+     * 批量重命名
+     *
+     * @return 是否成功
+     */
+    public boolean rename(AList.Rename rename) throws InterruptedIOException {
+        return success(post("/api/fs/batch_rename", rename));
+    }
+
+    /**
+     * 批量移动
+     *
+     * @return 是否成功
+     */
+    public boolean move(AList.Move move) throws InterruptedIOException {
+        return success(post("/api/fs/batch_move", move));
+    }
+
+    /**
+     * 删除
+     *
+     * @return 是否成功
+     */
+    public boolean delete(AList.Delete delete) throws InterruptedIOException {
+        return success(post("/api/fs/remove", delete));
+    }
+
+    /**
+     * 使用本会话的token发送POST请求
+     *
+     * @param api 接口路径 例：/api/fs/search
+     * @return 请求或解析失败时返回null
+     */
+    public AList.Result post(String api, Object body) throws InterruptedIOException {
+        return post(api, body, token);
+    }
+
+    /**
+     * 使用指定token发送POST请求 受该接口的并发限制 返回码不为200视为失败
+     */
+    AList.Result post(String api, Object body, String token) throws InterruptedIOException {
+        ConcurrencyLimiter limiter = limiter(api);
+        long start = acquire(limiter);
+        String json = JsonUtil.toJSONString(body);
+        String response = null;
+        AList.Result result = null;
+        try {
+            response = send(api, json, token);
+            result = response == null ? null : JsonUtil.parseObject(response, AList.Result.class);
+            return result;
+        } finally {
+            limiter.release(start, success(result));
+            record(api, start, result == null ? AListMetrics.FAILED : result.getCode(), json, response, body);
+        }
+    }
+
+    /**
+     * 发送POST请求 返回原始响应 受该接口的并发限制
+     *
+     * @return 请求失败返回null
+     */
+    String postForString(String api, Object body, String token) throws InterruptedIOException {
+        ConcurrencyLimiter limiter = limiter(api);
+        long start = acquire(limiter);
+        String json = JsonUtil.toJSONString(body);
+        String response = null;
+        try {
+            return response = send(api, json, token);
+        } finally {
+            limiter.release(start, response != null);
+            record(api, start, response == null ? AListMetrics.FAILED : 200, json, response, body);
+        }
+    }
+
+    /**
+     * 搜索一页并直接从响应流解析到文件信息表 不生成响应字符串和文件信息对象 受搜索接口的并发限制
+     *
+     * @param table 写入的表 失败时不写入
+     * @return Data.total 失败返回{@link SearchResponseParser#FAILED}
+     */
+    long searchInto(AList.Search search, String token, ContentTable table) throws InterruptedIOException {
+        String api = "/api/fs/search";
+        ConcurrencyLimiter limiter = limiter(api);
+        long start = acquire(limiter);
+        String json = JsonUtil.toJSONString(search);
+        long total = SearchResponseParser.FAILED;
+        long responseBytes = 0;
+        int before = table.size();
+        HttpPost httpPost = request(api, json, token);
+        try (CloseableHttpResponse response = httpClient.execute(httpPost)) {
+            HttpEntity entity = response.getEntity();
+            if (entity != null) {
+                responseBytes = Math.max(0, entity.getContentLength());
+                try (InputStream in = entity.getContent()) {
+                    if (HttpStatus.SC_OK == response.getStatusLine().getStatusCode()) {
+                        total = SearchResponseParser.parse(in, table);
+                    }
+                    //读完剩余内容 连接才能放回连接池
+                    EntityUtils.consume(entity);
+                }
+            }
+            return total;
+        } catch (IOException | RuntimeException e) {
+            //解析完成后读取剩余内容时也可能失败 已写入的行一并删除
+            e.printStackTrace();
+            table.truncate(before);
+            total = SearchResponseParser.FAILED;
+            return total;
+        } finally {
+            boolean success = total != SearchResponseParser.FAILED;
+            limiter.release(start, success);
+            metrics.record(api, System.nanoTime() - start, success ? 200 : AListMetrics.FAILED,
+                    RenamePlanner.utf8Length(json), responseBytes, 1);
+        }
+    }
+
+    private void record(String api, long start, long code, String json, String response, Object body) {
+        metrics.record(api, System.nanoTime() - start, code, RenamePlanner.utf8Length(json),
+                response == null ? 0 : RenamePlanner.utf8Length(response), AListMetrics.items(body));
+    }
+
+    /**
+     * 本会话的接口指标
+     */
+    public AListMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * 本会话已确认存在的目录
+     */
+    Set<String> knownDirs() {
+        return knownDirs;
+    }
+
+    /**
+     * 接口的并发限制 未设置时初始为{@link AList#DEFAULT_PARALLELISM} 上限为最大连接数
+     */
+    public ConcurrencyLimiter limiter(String api) {
+        return limiters.computeIfAbsent(api, k -> new ConcurrencyLimiter(AList.DEFAULT_PARALLELISM, 1, maxConnections));
+    }
+
+    /**
+     * 设置接口的并发限制
+     *
+     * @param api 接口路径 例：/api/fs/batch_move
+     */
+    public void setLimiter(String api, ConcurrencyLimiter limiter) {
+        limiters.put(api, limiter);
+    }
+
+    /**
+     * 等待并发许可 被中断时恢复中断标记并抛出异常 不发送请求
+     */
+    private static long acquire(ConcurrencyLimiter limiter) throws InterruptedIOException {
+        try {
+            return limiter.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("等待请求许可被中断");
+        }
+    }
+
+    private HttpPost request(String api, String json, String token) {
+        HttpPost httpPost = new HttpPost(baseUrl + api);
+        httpPost.setEntity(new StringEntity(json, ContentType.create("application/json", "utf-8")));
+        if (token != null) {
+            httpPost.addHeader("Authorization", token);
+        }
+        return httpPost;
+    }
+
+    private String send(String api, String json, String token) {
+        HttpPost httpPost = request(api, json, token);
+        try (CloseableHttpResponse response = httpClient.execute(httpPost)) {
+            int statusCode = response.getStatusLine().getStatusCode();
+            //读完响应体 连接才能放回连接池
+            HttpEntity entity = response.getEntity();
+            String result = entity == null ? null : EntityUtils.toString(entity, "UTF-8");
+            if (HttpStatus.SC_OK != statusCode) {
+                throw new RuntimeException("HttpClient,error status code :" + statusCode);
+            }
+            return result;
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        return null;
+    }
+
+    private static boolean success(AList.Result result) {
+        return result != null && result.getCode() == 200;
+    }
+
+    public String getBaseUrl() {
+        return baseUrl;
+    }
+
+    public String getToken() {
+        return token;
+    }
+
+    @Override
+    public void close() throws IOException {
+        httpClient.close();
+        connectionManager.close();
+    }
+}
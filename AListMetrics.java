@@ -0,0 +1,319 @@
+package cn.yl.common.utils;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.io.Closeable;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * @author YL
+ * @Desc AList接口指标 按接口统计请求数、失败数、返回码、耗时分布、请求/响应字节数和每批文件数
+ * <p>
+ * 通过{@link #addExporter(Exporter)}接入输出方式 自带定时日志{@link LogReporter}和JMX{@link JmxExporter}
+ * @since 2024-10-26 19:55:02
+ */
+@SuppressWarnings("all")
+public class AListMetrics {
+
+    /**
+     * 请求失败(网络错误、HTTP状态码不为200或响应无法解析)时记录的返回码
+     */
+    public static final long FAILED = -1;
+
+    private final Map<String, Endpoint> endpoints = new ConcurrentHashMap<>();
+
+    private final List<Exporter> exporters = new ArrayList<>();
+
+    /**
+     * 新增接口与接入输出方式互斥 保证每个输出方式对每个接口恰好通知一次
+     */
+    private final Object lock = new Object();
+
+    /**
+     * 记录一次请求
+     *
+     * @param api           接口路径
+     * @param latencyNanos  耗时(纳秒)
+     * @param code          返回码 请求失败为{@link #FAILED}
+     * @param requestBytes  请求体字节数
+     * @param responseBytes 响应体字节数
+     * @param items         本次请求包含的文件数
+     */
+    public void record(String api, long latencyNanos, long code, long requestBytes, long responseBytes, int items) {
+        endpoint(api).record(latencyNanos, code, requestBytes, responseBytes, items);
+    }
+
+    /**
+     * 接口的指标 不存在时创建并通知输出方式
+     */
+    public Endpoint endpoint(String api) {
+        Endpoint endpoint = endpoints.get(api);
+        if (endpoint != null) return endpoint;
+        synchronized (lock) {
+            endpoint = endpoints.get(api);
+            if (endpoint != null) return endpoint;
+            Endpoint created = new Endpoint();
+            endpoints.put(api, created);
+            for (Exporter exporter : exporters) {
+                exporter.added(api, created);
+            }
+            return created;
+        }
+    }
+
+    /**
+     * 全部接口的指标 按接口路径排序
+     */
+    public Map<String, Endpoint> getEndpoints() {
+        return new TreeMap<>(endpoints);
+    }
+
+    /**
+     * 接入输出方式 已有的接口会立即通知
+     */
+    public void addExporter(Exporter exporter) {
+        synchronized (lock) {
+            exporters.add(exporter);
+            endpoints.forEach(exporter::added);
+        }
+    }
+
+    /**
+     * 请求包含的文件数 批量重命名、移动、删除按文件数计 其余为1
+     */
+    static int items(Object body) {
+        if (body instanceof AList.Rename) {
+            List<?> objects = ((AList.Rename) body).getRename_Objects();
+            return objects == null ? 0 : objects.size();
+        }
+        if (body instanceof AList.Move) {
+            List<?> names = ((AList.Move) body).getNames();
+            return names == null ? 0 : names.size();
+        }
+        if (body instanceof AList.Delete) {
+            List<?> names = ((AList.Delete) body).getNames();
+            return names == null ? 0 : names.size();
+        }
+        return 1;
+    }
+
+    /**
+     * 输出方式
+     */
+    public interface Exporter {
+        /**
+         * 新增接口时调用
+         */
+        void added(String api, Endpoint endpoint);
+    }
+
+    /**
+     * JMX使用的接口指标视图
+     */
+    public interface EndpointMXBean {
+        long getRequests();
+
+        long getFailures();
+
+        Map<String, Long> getCodes();
+
+        double getMeanMillis();
+
+        double getMaxMillis();
+
+        double getP50Millis();
+
+        double getP99Millis();
+
+        long getRequestBytes();
+
+        long getResponseBytes();
+
+        double getMeanItems();
+    }
+
+    /**
+     * 单个接口的指标
+     */
+    public static class Endpoint implements EndpointMXBean {
+
+        /**
+         * 耗时分布 第i个桶为[2^i, 2^(i+1))微秒
+         */
+        private final AtomicLongArray latency = new AtomicLongArray(40);
+        private final LongAdder requests = new LongAdder();
+        private final LongAdder failures = new LongAdder();
+        private final Map<Long, LongAdder> codes = new ConcurrentHashMap<>();
+        private final LongAdder totalNanos = new LongAdder();
+        private final LongAccumulator maxNanos = new LongAccumulator(Math::max, 0);
+        private final LongAdder requestBytes = new LongAdder();
+        private final LongAdder responseBytes = new LongAdder();
+        private final LongAdder items = new LongAdder();
+
+        void record(long latencyNanos, long code, long requestBytes, long responseBytes, int items) {
+            requests.increment();
+            if (code != 200) failures.increment();
+            codes.computeIfAbsent(code, k -> new LongAdder()).increment();
+            totalNanos.add(latencyNanos);
+            maxNanos.accumulate(latencyNanos);
+            long micros = Math.max(1, latencyNanos / 1000);
+            latency.incrementAndGet(Math.min(latency.length() - 1, 63 - Long.numberOfLeadingZeros(micros)));
+            this.requestBytes.add(requestBytes);
+            this.responseBytes.add(responseBytes);
+            this.items.add(items);
+        }
+
+        @Override
+        public long getRequests() {
+            return requests.sum();
+        }
+
+        @Override
+        public long getFailures() {
+            return failures.sum();
+        }
+
+        @Override
+        public Map<String, Long> getCodes() {
+            Map<String, Long> snapshot = new TreeMap<>();
+            codes.forEach((code, count) -> snapshot.put(String.valueOf(code), count.sum()));
+            return snapshot;
+        }
+
+        @Override
+        public double getMeanMillis() {
+            long count = requests.sum();
+            return count == 0 ? 0 : totalNanos.sum() / 1e6 / count;
+        }
+
+        @Override
+        public double getMaxMillis() {
+            return maxNanos.get() / 1e6;
+        }
+
+        @Override
+        public double getP50Millis() {
+            return percentile(0.5);
+        }
+
+        @Override
+        public double getP99Millis() {
+            return percentile(0.99);
+        }
+
+        /**
+         * 分位耗时 取所在桶的上界 不超过最大耗时
+         */
+        public double percentile(double p) {
+            long[] counts = new long[latency.length()];
+            long total = 0;
+            for (int i = 0; i < counts.length; i++) {
+                counts[i] = latency.get(i);
+                total += counts[i];
+            }
+            if (total == 0) return 0;
+            long rank = (long) Math.ceil(total * p);
+            long seen = 0;
+            for (int i = 0; i < counts.length; i++) {
+                seen += counts[i];
+                if (seen >= rank) return Math.min((1L << (i + 1)) / 1000.0, getMaxMillis());
+            }
+            return getMaxMillis();
+        }
+
+        @Override
+        public long getRequestBytes() {
+            return requestBytes.sum();
+        }
+
+        @Override
+        public long getResponseBytes() {
+            return responseBytes.sum();
+        }
+
+        @Override
+        public double getMeanItems() {
+            long count = requests.sum();
+            return count == 0 ? 0 : (double) items.sum() / count;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("requests=%d failures=%d codes=%s mean=%.1fms p50=%.1fms p99=%.1fms max=%.1fms requestBytes=%d responseBytes=%d meanItems=%.1f",
+                    getRequests(), getFailures(), getCodes(), getMeanMillis(), getP50Millis(), getP99Millis(), getMaxMillis(),
+                    getRequestBytes(), getResponseBytes(), getMeanItems());
+        }
+    }
+
+    /**
+     * 定时将全部接口的指标打印到标准输出
+     */
+    public static class LogReporter implements Exporter, Closeable {
+
+        private final Map<String, Endpoint> endpoints = new ConcurrentHashMap<>();
+
+        private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "alist-metrics");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        /**
+         * @param periodSeconds 打印间隔(秒)
+         */
+        public LogReporter(long periodSeconds) {
+            scheduler.scheduleAtFixedRate(this::report, periodSeconds, periodSeconds, TimeUnit.SECONDS);
+        }
+
+        @Override
+        public void added(String api, Endpoint endpoint) {
+            endpoints.put(api, endpoint);
+        }
+
+        /**
+         * 立即打印一次
+         */
+        public void report() {
+            new TreeMap<>(endpoints).forEach((api, endpoint) -> System.out.printf("[AList] %s %s%n", api, endpoint));
+        }
+
+        /**
+         * 停止定时打印并打印最后一次
+         */
+        @Override
+        public void close() {
+            scheduler.shutdownNow();
+            report();
+        }
+    }
+
+    /**
+     * 注册到平台MBeanServer 名称为 cn.yl.common.utils:type=AList,endpoint=接口路径
+     */
+    public static class JmxExporter implements Exporter {
+
+        private final MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+
+        @Override
+        public void added(String api, Endpoint endpoint) {
+            try {
+                ObjectName name = new ObjectName("cn.yl.common.utils:type=AList,endpoint=" + ObjectName.quote(api));
+                if (!server.isRegistered(name)) server.registerMBean(endpoint, name);
+            } catch (JMException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+}
@@ -0,0 +1,237 @@
+package cn.yl.common.utils;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * @author YL
+ * @Desc AList操作计划(试运行) 只计算重命名、移动、删除将要发送的请求 不实际执行
+ * <p>
+ * 按车牌并行计算 边算边以NDJSON写入 plan.rename、plan.move、plan.delete 三个日志 内存占用与车牌数无关
+ * 保存的计划可在之后直接执行 不需要重新搜索和计算
+ * @since 2024-10-20 21:18:03
+ */
+@SuppressWarnings("all")
+public abstract class AListPlan {
+
+    /**
+     * 生成计划 会清空同名的旧计划
+     *
+     * @param plan            计划路径前缀
+     * @param searchMap       搜索结果
+     * @param actorNameMap    演员名
+     * @param licensePlateMap 车牌名
+     * @param mappings        重命名映射 为null时不生成重命名
+     * @param srcPrefix       移动的源路径前缀 为null时不生成移动
+     * @param targetPrefix    移动的目标路径前缀
+     * @param excludeName     删除时保留的文件名 为null时不生成删除
+     * @param parallelism     计算线程数
+     * @return 计划汇总
+     */
+    public static Summary generate(String plan, Map<String, AList.Data> searchMap, Map<Integer, String> actorNameMap,
+                                   Map<Integer, String> licensePlateMap, Map<String, String> mappings,
+                                   String srcPrefix, String targetPrefix, List<String> excludeName, int parallelism) throws IOException {
+        ErrorJournal.reset(plan + ".rename");
+        ErrorJournal.reset(plan + ".move");
+        ErrorJournal.reset(plan + ".delete");
+        ErrorJournal renameJournal = ErrorJournal.of(plan + ".rename");
+        ErrorJournal moveJournal = ErrorJournal.of(plan + ".move");
+        ErrorJournal deleteJournal = ErrorJournal.of(plan + ".delete");
+        Summary summary = new Summary();
+        int threads = Math.max(1, parallelism);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        Semaphore permits = new Semaphore(threads * 2);
+        AtomicReference<IOException> failure = new AtomicReference<>();
+        //同一车牌的移动和删除只计算一次
+        Set<String> planned = ConcurrentHashMap.newKeySet();
+        Set<String> exclude = excludeName == null ? null : new HashSet<>(excludeName);
+        try {
+            for (Map.Entry<Integer, String> entry : licensePlateMap.entrySet()) {
+                if (failure.get() != null) break;
+                permits.acquire();
+                executor.execute(() -> {
+                    try {
+                        AList.Data data = entry.getValue() != null && planned.add(entry.getValue()) ? searchMap.get(entry.getValue()) : null;
+                        List<AList.Rename> renames = mappings == null ? Collections.emptyList()
+                                : AList.planRename(searchMap, actorNameMap, licensePlateMap, entry.getKey(), mappings);
+                        for (AList.Rename rename : renames) {
+                            summary.renames.add(renameJournal, rename, rename.getRename_Objects().size());
+                        }
+                        if (data == null || data.getContent() == null) return;
+                        //移动在重命名之后执行 删除在移动之后执行 需使用执行到该步时的路径和文件名 否则执行计划时找不到文件
+                        ContentTable table = renamed(data.getContent(), renames);
+                        if (srcPrefix != null) {
+                            for (AList.Move move : AList.planMove(table, srcPrefix, targetPrefix)) {
+                                summary.moves.add(moveJournal, move, move.getNames().size());
+                            }
+                            table = moved(table, srcPrefix, targetPrefix);
+                        }
+                        if (exclude != null) {
+                            for (AList.Delete delete : AList.planDelete(table, exclude)) {
+                                summary.deletes.add(deleteJournal, delete, delete.getNames().size());
+                            }
+                        }
+                    } catch (IOException e) {
+                        failure.compareAndSet(null, e);
+                    } finally {
+                        permits.release();
+                    }
+                });
+            }
+            executor.shutdown();
+            executor.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("生成计划被中断");
+        } finally {
+            executor.shutdownNow();
+            renameJournal.close();
+            moveJournal.close();
+            deleteJournal.close();
+        }
+        if (failure.get() != null) throw failure.get();
+        JsonUtil.objectToFile(new File(plan + ".summary.json"), summary);
+        return summary;
+    }
+
+    /**
+     * 执行保存的计划 依次执行重命名、移动、删除
+     * 移动和删除在生成时已按之前步骤改写了路径和文件名 前一步失败的文件在后一步中同样找不到 会被跳过
+     * 发送前会检查文件是否仍然存在 仍然失败的写入对应的失败日志
+     *
+     * @return 仍然失败的请求数
+     */
+    public static long execute(String plan, String token, int parallelism, String errorRename, String errorMove, String errorDelete) throws IOException {
+        long failed = AListReplay.replayRename(plan + ".rename", errorRename, token, parallelism, AListReplay.DEFAULT_MAX_ATTEMPTS);
+        failed += AListReplay.replayMove(plan + ".move", errorMove, token, parallelism, AListReplay.DEFAULT_MAX_ATTEMPTS);
+        failed += AListReplay.replayDelete(plan + ".delete", errorDelete, token, parallelism, AListReplay.DEFAULT_MAX_ATTEMPTS);
+        return failed;
+    }
+
+    /**
+     * 按重命名计划改写文件名 重命名的文件夹同时改写其下文件的路径
+     */
+    static ContentTable renamed(List<AList.Content> contents, List<AList.Rename> renames) {
+        //原路径-新文件名
+        Map<String, String> newNames = new HashMap<>();
+        for (AList.Rename rename : renames) {
+            for (AList.RenameObject object : rename.getRename_Objects()) {
+                newNames.put(LocalIndex.child(rename.getSrc_Dir(), object.getSrc_Name()), object.getNew_Name());
+            }
+        }
+        ContentTable table = new ContentTable(contents.size());
+        for (AList.Content content : contents) {
+            String name = newNames.getOrDefault(LocalIndex.child(content.getParent(), content.getName()), content.getName());
+            table.add(renamedPath(content.getParent(), newNames), name, content.getIsDir(), content.getSize(), content.getType());
+        }
+        return table;
+    }
+
+    /**
+     * 按移动计划改写路径 规则同{@link AList#planMove(ContentTable, String, String)}
+     */
+    static ContentTable moved(ContentTable table, String srcPrefix, String targetPrefix) {
+        ContentTable moved = new ContentTable(table.size());
+        for (int row = 0; row < table.size(); row++) {
+            String parent = table.parent(row);
+            if (!parent.contains(targetPrefix)) parent = parent.replace(srcPrefix, targetPrefix);
+            moved.add(parent, table.name(row), table.isDir(row), table.size(row), table.type(row));
+        }
+        return moved;
+    }
+
+    /**
+     * 逐级改写路径中被重命名的文件夹
+     */
+    private static String renamedPath(String path, Map<String, String> newNames) {
+        if (newNames.isEmpty() || path == null) return path;
+        StringBuilder original = new StringBuilder();
+        StringBuilder renamed = new StringBuilder();
+        for (String segment : path.split("/")) {
+            if (segment.isEmpty()) continue;
+            original.append('/').append(segment);
+            renamed.append('/').append(newNames.getOrDefault(original.toString(), segment));
+        }
+        return renamed.length() == 0 ? path : renamed.toString();
+    }
+
+    /**
+     * 计划汇总
+     */
+    public static class Summary {
+        private final Counter renames = new Counter();
+        private final Counter moves = new Counter();
+        private final Counter deletes = new Counter();
+
+        public Counter getRenames() {
+            return renames;
+        }
+
+        public Counter getMoves() {
+            return moves;
+        }
+
+        public Counter getDeletes() {
+            return deletes;
+        }
+
+        @Override
+        public String toString() {
+            return "Summary{" +
+                    "renames=" + renames +
+                    ", moves=" + moves +
+                    ", deletes=" + deletes +
+                    '}';
+        }
+    }
+
+    /**
+     * 单类操作的请求数、文件数和请求体字节数
+     */
+    public static class Counter {
+        private final AtomicLong requests = new AtomicLong();
+        private final AtomicLong items = new AtomicLong();
+        private final AtomicLong bytes = new AtomicLong();
+
+        void add(ErrorJournal journal, Object request, int itemCount) throws IOException {
+            bytes.addAndGet(journal.append(request));
+            requests.incrementAndGet();
+            items.addAndGet(itemCount);
+        }
+
+        public long getRequests() {
+            return requests.get();
+        }
+
+        public long getItems() {
+            return items.get();
+        }
+
+        public long getBytes() {
+            return bytes.get();
+        }
+
+        @Override
+        public String toString() {
+            return "{" +
+                    "requests=" + requests +
+                    ", items=" + items +
+                    ", bytes=" + bytes +
+                    '}';
+        }
+    }
+}
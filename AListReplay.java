@@ -0,0 +1,265 @@
+package cn.yl.common.utils;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * @author YL
+ * @Desc AList失败重放 流式读取searchError/errorRename/errorMove/errorDelete 并发重新请求 失败时指数退避重试
+ * <p>
+ * 重放前会列出目录检查文件是否仍然存在 已经完成的操作不会重复发送 每一轮只把仍然失败的记录写入新的日志
+ * @since 2024-10-17 21:12:26
+ */
+@SuppressWarnings("all")
+public abstract class AListReplay {
+
+    /**
+     * 默认最大尝试次数
+     */
+    public static final int DEFAULT_MAX_ATTEMPTS = 4;
+
+    /**
+     * 退避初始等待时间 毫秒
+     */
+    public static final long BASE_BACKOFF = 500L;
+
+    /**
+     * 退避最大等待时间 毫秒
+     */
+    public static final long MAX_BACKOFF = 30_000L;
+
+    /**
+     * 重放搜索
+     *
+     * @param searchError 搜索失败日志
+     * @param nextError   仍然失败的记录写入的日志
+     * @return 车牌-搜索结果 与{@link AList#search}相同 可直接用于重命名、移动 旧日志没有记录车牌时以关键词代替
+     */
+    public static Map<String, AList.Data> replaySearch(String searchError, String nextError, String token, int parallelism, int maxAttempts) throws IOException {
+        Map<String, AList.Data> searchMap = new ConcurrentHashMap<>();
+        replay(searchError, AList.FailedSearch.class, nextError, parallelism, failed -> {
+            //只发送搜索条件 不带车牌
+            AList.Search search = AList.withPage(failed, failed.getPage());
+            AList.Data[] data = new AList.Data[1];
+            boolean success = retry(maxAttempts, () -> {
+                data[0] = AList.doSearch(search, token);
+                return data[0] != null;
+            });
+            if (!success || data[0].getContent() == null || data[0].getContent().isEmpty()) return failed;
+            searchMap.put(failed.getLicensePlate() != null ? failed.getLicensePlate() : failed.getKeywords(), data[0]);
+            return null;
+        });
+        return searchMap;
+    }
+
+    public static long replayRename(String errorRename, String nextError, String token, int parallelism, int maxAttempts) throws IOException {
+        return replayRename(errorRename, nextError, null, token, parallelism, maxAttempts);
+    }
+
+    /**
+     * 重放重命名 原文件已不存在的跳过
+     *
+     * @param password 列目录使用的密码
+     * @return 仍然失败的记录数
+     */
+    public static long replayRename(String errorRename, String nextError, String password, String token, int parallelism, int maxAttempts) throws IOException {
+        return replay(errorRename, AList.Rename.class, nextError, parallelism, rename -> {
+            Set<String> names = names(rename.getSrc_Dir(), password, token, maxAttempts);
+            if (names == null) return rename;
+            List<AList.RenameObject> pending = rename.getRename_Objects().stream()
+                    .filter(o -> names.contains(o.getSrc_Name()))
+                    .collect(Collectors.toList());
+            if (pending.isEmpty()) return null;
+            rename.setRename_Objects(pending);
+            if (!send("/api/fs/batch_rename", rename, token, maxAttempts, rename.getSrc_Dir())) return rename;
+            AList.renamed(rename);
+            return null;
+        });
+    }
+
+    public static long replayMove(String errorMove, String nextError, String token, int parallelism, int maxAttempts) throws IOException {
+        return replayMove(errorMove, nextError, null, token, parallelism, maxAttempts);
+    }
+
+    /**
+     * 重放移动 源目录中已不存在的文件跳过
+     *
+     * @param password 列目录使用的密码
+     * @return 仍然失败的记录数
+     */
+    public static long replayMove(String errorMove, String nextError, String password, String token, int parallelism, int maxAttempts) throws IOException {
+        return replay(errorMove, AList.Move.class, nextError, parallelism, move -> {
+            Set<String> names = names(move.getSrc_dir(), password, token, maxAttempts);
+            if (names == null) return move;
+            List<String> pending = move.getNames().stream().filter(names::contains).collect(Collectors.toList());
+            if (pending.isEmpty()) return null;
+            move.setNames(pending);
+            //与AList.executeMove一致 先确保目标目录存在
+            boolean created = retry(maxAttempts, () -> MoveExecutor.mkdir(move.getDst_dir(), token));
+            if (!created || !send("/api/fs/batch_move", move, token, maxAttempts, move.getSrc_dir(), move.getDst_dir())) return move;
+            AList.moved(move);
+            return null;
+        });
+    }
+
+    public static long replayDelete(String errorDelete, String nextError, String token, int parallelism, int maxAttempts) throws IOException {
+        return replayDelete(errorDelete, nextError, null, token, parallelism, maxAttempts);
+    }
+
+    /**
+     * 重放删除 已不存在的文件跳过
+     *
+     * @param password 列目录使用的密码
+     * @return 仍然失败的记录数
+     */
+    public static long replayDelete(String errorDelete, String nextError, String password, String token, int parallelism, int maxAttempts) throws IOException {
+        return replay(errorDelete, AList.Delete.class, nextError, parallelism, delete -> {
+            Set<String> names = names(delete.getDir(), password, token, maxAttempts);
+            if (names == null) return delete;
+            List<String> pending = delete.getNames().stream().filter(names::contains).collect(Collectors.toList());
+            if (pending.isEmpty()) return null;
+            delete.setNames(pending);
+            if (!send("/api/fs/remove", delete, token, maxAttempts, delete.getDir())) return delete;
+            AList.deleted(delete);
+            return null;
+        });
+    }
+
+    /**
+     * 流式重放 同时在途的记录数不超过parallelism的两倍
+     *
+     * @param attempt 处理一条记录 返回仍然失败的记录 成功或无需处理返回null
+     * @return 仍然失败的记录数
+     */
+    private static <T> long replay(String path, Class<T> type, String nextError, int parallelism, Attempt<T> attempt) throws IOException {
+        if (path.equals(nextError)) throw new IllegalArgumentException("nextError不能与原日志相同");
+        int threads = Math.max(1, parallelism);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        Semaphore permits = new Semaphore(threads * 2);
+        ErrorJournal journal = ErrorJournal.of(nextError);
+        AtomicLong failed = new AtomicLong();
+        try (Stream<T> records = ErrorJournal.read(path, type)) {
+            try {
+                records.forEach(record -> {
+                    try {
+                        permits.acquire();
+                    } catch (InterruptedException e) {
+                        throw new Interrupted(e);
+                    }
+                    executor.execute(() -> {
+                        try {
+                            T remaining;
+                            try {
+                                remaining = attempt.apply(record);
+                            } catch (IOException | RuntimeException e) {
+                                System.err.printf("重放失败：%s%n", e);
+                                remaining = record;
+                            }
+                            if (remaining != null) {
+                                failed.incrementAndGet();
+                                journal.append(remaining);
+                            }
+                        } catch (IOException e) {
+                            e.printStackTrace();
+                        } finally {
+                            permits.release();
+                        }
+                    });
+                });
+            } catch (Interrupted e) {
+                //forEach中不能抛出受检异常 等待许可时被中断包装后在此还原
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("重放被中断");
+            }
+            executor.shutdown();
+            executor.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("重放被中断");
+        } finally {
+            executor.shutdownNow();
+            journal.flush();
+        }
+        return failed.get();
+    }
+
+    /**
+     * 目录下现有的文件名
+     *
+     * @return 列目录失败返回null
+     */
+    private static Set<String> names(String dir, String password, String token, int maxAttempts) throws IOException {
+        AList.Data[] data = new AList.Data[1];
+        if (!retry(maxAttempts, () -> (data[0] = AList.list(dir, password, token)) != null)) return null;
+        Set<String> names = new HashSet<>();
+        if (data[0].getContent() != null) {
+            for (AList.Content content : data[0].getContent()) {
+                names.add(content.getName());
+            }
+        }
+        return names;
+    }
+
+    private static boolean send(String api, Object body, String token, int maxAttempts, String... dirs) throws IOException {
+        return retry(maxAttempts, () -> {
+            AList.Result result = AList.post(api, body, token);
+            AList.invalidate(dirs);
+            return result != null && result.getCode() == 200;
+        });
+    }
+
+    /**
+     * 指数退避重试 等待时间为 BASE_BACKOFF * 2^n 加随机抖动 被中断时抛出InterruptedIOException
+     */
+    private static boolean retry(int maxAttempts, Call call) throws IOException {
+        for (int attempt = 0; attempt < Math.max(1, maxAttempts); attempt++) {
+            if (attempt > 0) {
+                long backoff = Math.min(MAX_BACKOFF, BASE_BACKOFF << Math.min(attempt - 1, 16));
+                try {
+                    Thread.sleep(backoff / 2 + ThreadLocalRandom.current().nextLong(backoff / 2 + 1));
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException("重试等待被中断");
+                }
+            }
+            if (call.call()) return true;
+        }
+        return false;
+    }
+
+    /**
+     * 在forEach中传递等待许可时的中断
+     */
+    private static class Interrupted extends RuntimeException {
+        Interrupted(InterruptedException cause) {
+            super(cause);
+        }
+    }
+
+    /**
+     * 处理一条记录
+     */
+    private interface Attempt<T> {
+        T apply(T record) throws IOException;
+    }
+
+    /**
+     * 发送一次请求 返回是否成功
+     */
+    private interface Call {
+        boolean call() throws IOException;
+    }
+}
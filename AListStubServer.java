@@ -0,0 +1,448 @@
+package cn.yl.common.utils;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Function;
+
+/**
+ * @author YL
+ * @Desc 进程内AList模拟服务 基于内存目录树实现 search、list、get、mkdir、batch_rename、batch_move、remove
+ * 目录内有增删、重命名时更新该目录的修改时间 与AList一致
+ * <p>
+ * 可设置每个请求的固定延迟和随机失败比例 用于在没有真实AList的情况下压测 见{@link AListBenchmark}
+ * 失败与真实AList一致 HTTP状态码仍为200 Result.code为500
+ * 测量耗时时应以-Dsun.net.httpserver.nodelay=true启动 关闭Nagle算法 否则小响应会与客户端的延迟确认叠加 每个请求多出约40ms
+ * 该属性在JDK内置HTTP服务首次使用时读取 本类不修改系统属性
+ * @since 2024-10-27 20:31:45
+ */
+@SuppressWarnings("all")
+public class AListStubServer implements Closeable {
+
+    private final HttpServer server;
+
+    private final ExecutorService executor;
+
+    /**
+     * 目录-文件名-文件
+     */
+    private final Map<String, Map<String, AList.Content>> dirs = new HashMap<>();
+
+    /**
+     * 文件名(小写)中的三字符-文件 用于搜索 按子串匹配 与AList一致
+     */
+    private final Map<Long, Set<AList.Content>> grams = new HashMap<>();
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    /**
+     * 根目录的修改时间 其余目录记录在上级目录中的条目上
+     */
+    private String rootModified;
+
+    /**
+     * 上次分配的修改时间(毫秒) 保证每次修改的时间都不同
+     */
+    private long clock;
+
+    private volatile long latencyMillis;
+
+    private volatile double errorRate;
+
+    /**
+     * @param port    端口 0为随机端口
+     * @param threads 处理请求的线程数
+     */
+    public AListStubServer(int port, int threads) throws IOException {
+        this.server = HttpServer.create(new InetSocketAddress("127.0.0.1", port), 1024);
+        this.executor = Executors.newFixedThreadPool(Math.max(1, threads));
+        server.setExecutor(executor);
+        handle("/api/fs/search", AList.Search.class, this::search);
+        handle("/api/fs/list", AList.ListDir.class, this::list);
+        handle("/api/fs/get", AList.ListDir.class, this::get);
+        handle("/api/fs/mkdir", AList.MakeDir.class, this::mkdir);
+        handle("/api/fs/batch_rename", AList.Rename.class, this::rename);
+        handle("/api/fs/batch_move", AList.Move.class, this::move);
+        handle("/api/fs/remove", AList.Delete.class, this::remove);
+        mkdirs("/");
+    }
+
+    public AListStubServer start() {
+        server.start();
+        return this;
+    }
+
+    /**
+     * 服务地址 可直接用于{@link AListClient}
+     */
+    public String getBaseUrl() {
+        return "http://127.0.0.1:" + server.getAddress().getPort();
+    }
+
+    /**
+     * 每个请求的固定延迟(毫秒)
+     */
+    public void setLatencyMillis(long latencyMillis) {
+        this.latencyMillis = latencyMillis;
+    }
+
+    /**
+     * 随机失败的比例 0~1
+     */
+    public void setErrorRate(double errorRate) {
+        this.errorRate = errorRate;
+    }
+
+    /**
+     * 添加文件 上级目录不存在时自动创建
+     */
+    public void addFile(String dir, String name, long size) {
+        lock.writeLock().lock();
+        try {
+            mkdirs(dir);
+            put(dir, content(dir, name, false, size));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * 文件和目录总数
+     */
+    public long size() {
+        lock.readLock().lock();
+        try {
+            long size = 0;
+            for (Map<String, AList.Content> children : dirs.values()) {
+                size += children.size();
+            }
+            return size;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private <T> void handle(String api, Class<T> type, Function<T, Object> handler) {
+        server.createContext(api, exchange -> {
+            try {
+                T request = JsonUtil.parseObject(new String(readAll(exchange.getRequestBody()), StandardCharsets.UTF_8), type);
+                if (latencyMillis > 0) Thread.sleep(latencyMillis);
+                Object result;
+                if (request == null) {
+                    result = result(400, "invalid request", null);
+                } else if (errorRate > 0 && ThreadLocalRandom.current().nextDouble() < errorRate) {
+                    result = result(500, "injected error", null);
+                } else {
+                    result = handler.apply(request);
+                }
+                respond(exchange, result);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (RuntimeException e) {
+                respond(exchange, result(500, String.valueOf(e.getMessage()), null));
+            } finally {
+                exchange.close();
+            }
+        });
+    }
+
+    private AList.Result search(AList.Search search) {
+        String keywords = search.getKeywords() == null ? "" : search.getKeywords().toLowerCase(Locale.ROOT);
+        List<AList.Content> matched = new ArrayList<>();
+        AList.Data data;
+        lock.readLock().lock();
+        try {
+            Set<AList.Content> candidates = null;
+            for (long gram : LocalIndex.grams(keywords)) {
+                Set<AList.Content> posting = grams.getOrDefault(gram, Collections.emptySet());
+                if (candidates == null || posting.size() < candidates.size()) candidates = posting;
+            }
+            if (candidates == null) {
+                for (Map<String, AList.Content> children : dirs.values()) {
+                    for (AList.Content content : children.values()) {
+                        LocalIndex.match(content, keywords, search, matched);
+                    }
+                }
+            } else {
+                for (AList.Content content : candidates) {
+                    LocalIndex.match(content, keywords, search, matched);
+                }
+            }
+            data = copy(LocalIndex.page(matched, search.getPage(), search.getPer_Page()));
+        } finally {
+            lock.readLock().unlock();
+        }
+        return result(200, "success", data);
+    }
+
+    private AList.Result list(AList.ListDir listDir) {
+        lock.readLock().lock();
+        try {
+            Map<String, AList.Content> children = dirs.get(listDir.getPath());
+            if (children == null) return result(500, "object not found", null);
+            return result(200, "success", copy(LocalIndex.page(new ArrayList<>(children.values()), listDir.getPage(), listDir.getPer_Page())));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 单个文件或目录的信息 data为文件本身而不是列表 所以不使用AList.Result
+     */
+    private Object get(AList.ListDir listDir) {
+        String path = listDir.getPath();
+        lock.readLock().lock();
+        try {
+            AList.Content content;
+            if ("/".equals(path)) {
+                content = content("/", "", true, 0);
+                content.setModified(rootModified);
+            } else {
+                int slash = path == null ? -1 : path.lastIndexOf('/');
+                Map<String, AList.Content> children = slash < 0 ? null : dirs.get(slash == 0 ? "/" : path.substring(0, slash));
+                content = children == null ? null : children.get(path.substring(slash + 1));
+                if (content == null) return result(500, "object not found", null);
+                content = copy(content);
+            }
+            Map<String, Object> result = new LinkedHashMap<>();
+            result.put("code", 200);
+            result.put("message", "success");
+            result.put("data", content);
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private AList.Result mkdir(AList.MakeDir makeDir) {
+        lock.writeLock().lock();
+        try {
+            mkdirs(makeDir.getPath());
+            return result(200, "success", null);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private AList.Result rename(AList.Rename rename) {
+        lock.writeLock().lock();
+        try {
+            Map<String, AList.Content> children = dirs.get(rename.getSrc_Dir());
+            if (children == null) return result(500, "object not found", null);
+            for (AList.RenameObject renameObject : rename.getRename_Objects()) {
+                AList.Content content = children.get(renameObject.getSrc_Name());
+                if (content == null) return result(500, "object not found: " + renameObject.getSrc_Name(), null);
+                relocate(content, rename.getSrc_Dir(), renameObject.getNew_Name());
+            }
+            return result(200, "success", null);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private AList.Result move(AList.Move move) {
+        lock.writeLock().lock();
+        try {
+            Map<String, AList.Content> children = dirs.get(move.getSrc_dir());
+            if (children == null || !dirs.containsKey(move.getDst_dir())) return result(500, "object not found", null);
+            for (String name : move.getNames()) {
+                AList.Content content = children.get(name);
+                if (content == null) return result(500, "object not found: " + name, null);
+                relocate(content, move.getDst_dir(), name);
+            }
+            return result(200, "success", null);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private AList.Result remove(AList.Delete delete) {
+        lock.writeLock().lock();
+        try {
+            Map<String, AList.Content> children = dirs.get(delete.getDir());
+            if (children == null) return result(500, "object not found", null);
+            for (String name : delete.getNames()) {
+                AList.Content content = children.get(name);
+                if (content != null) removeTree(content);
+            }
+            return result(200, "success", null);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * 移动或重命名 目录连同子树一起
+     */
+    private void relocate(AList.Content content, String dstDir, String newName) {
+        String oldPath = LocalIndex.child(content.getParent(), content.getName());
+        String newPath = LocalIndex.child(dstDir, newName);
+        unindex(content);
+        dirs.get(content.getParent()).remove(content.getName());
+        touch(content.getParent());
+        content.setParent(dstDir);
+        content.setName(newName);
+        put(dstDir, content);
+        if (!content.getIsDir()) return;
+        //子目录的路径前缀整体替换
+        Map<String, Map<String, AList.Content>> moved = new LinkedHashMap<>();
+        dirs.entrySet().removeIf(e -> {
+            if (!LocalIndex.inside(oldPath, e.getKey())) return false;
+            moved.put(newPath + e.getKey().substring(oldPath.length()), e.getValue());
+            return true;
+        });
+        moved.forEach((dir, children) -> {
+            for (AList.Content child : children.values()) {
+                child.setParent(dir);
+            }
+            dirs.put(dir, children);
+        });
+    }
+
+    private void removeTree(AList.Content content) {
+        unindex(content);
+        dirs.get(content.getParent()).remove(content.getName());
+        touch(content.getParent());
+        if (!content.getIsDir()) return;
+        String path = LocalIndex.child(content.getParent(), content.getName());
+        dirs.entrySet().removeIf(e -> {
+            if (!LocalIndex.inside(path, e.getKey())) return false;
+            for (AList.Content child : e.getValue().values()) {
+                unindex(child);
+            }
+            return true;
+        });
+    }
+
+    /**
+     * 逐级创建目录 调用方持有写锁
+     */
+    private void mkdirs(String path) {
+        if (dirs.containsKey(path)) return;
+        dirs.put(path, new LinkedHashMap<>());
+        if (!"/".equals(path)) {
+            int slash = path.lastIndexOf('/');
+            String parent = slash <= 0 ? "/" : path.substring(0, slash);
+            mkdirs(parent);
+            if (!dirs.get(parent).containsKey(path.substring(slash + 1))) {
+                put(parent, content(parent, path.substring(slash + 1), true, 0));
+            }
+        }
+        touch(path);
+    }
+
+    private void put(String dir, AList.Content content) {
+        dirs.get(dir).put(content.getName(), content);
+        for (long gram : LocalIndex.grams(content.getName())) {
+            grams.computeIfAbsent(gram, k -> Collections.newSetFromMap(new IdentityHashMap<>())).add(content);
+        }
+        touch(dir);
+    }
+
+    /**
+     * 更新目录的修改时间 调用方持有写锁
+     */
+    private void touch(String dir) {
+        clock = Math.max(System.currentTimeMillis(), clock + 1);
+        String time = Instant.ofEpochMilli(clock).toString();
+        if ("/".equals(dir)) {
+            rootModified = time;
+            return;
+        }
+        int slash = dir.lastIndexOf('/');
+        Map<String, AList.Content> children = dirs.get(slash <= 0 ? "/" : dir.substring(0, slash));
+        AList.Content self = children == null ? null : children.get(dir.substring(slash + 1));
+        if (self != null) self.setModified(time);
+    }
+
+    private void unindex(AList.Content content) {
+        for (long gram : LocalIndex.grams(content.getName())) {
+            Set<AList.Content> posting = grams.get(gram);
+            if (posting == null) continue;
+            posting.remove(content);
+            if (posting.isEmpty()) grams.remove(gram);
+        }
+    }
+
+    private static AList.Content content(String dir, String name, boolean isDir, long size) {
+        return Builder.of(AList.Content::new)
+                .with(AList.Content::setParent, dir)
+                .with(AList.Content::setName, name)
+                .with(AList.Content::setIsDir, isDir)
+                .with(AList.Content::setSize, size)
+                .build();
+    }
+
+    /**
+     * 复制返回的文件 响应在释放锁之后序列化 不能引用会被修改的对象
+     */
+    private static AList.Data copy(AList.Data data) {
+        List<AList.Content> content = new ArrayList<>(data.getContent().size());
+        for (AList.Content c : data.getContent()) {
+            content.add(copy(c));
+        }
+        data.setContent(content);
+        return data;
+    }
+
+    private static AList.Content copy(AList.Content content) {
+        AList.Content copy = content(content.getParent(), content.getName(), content.getIsDir(), content.getSize());
+        copy.setModified(content.getModified());
+        return copy;
+    }
+
+    private static AList.Result result(long code, String message, AList.Data data) {
+        return Builder.of(AList.Result::new)
+                .with(AList.Result::setCode, code)
+                .with(AList.Result::setMessage, message)
+                .with(AList.Result::setData, data)
+                .build();
+    }
+
+    private static void respond(HttpExchange exchange, Object result) throws IOException {
+        byte[] body = JsonUtil.toByteArray(result);
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        exchange.sendResponseHeaders(200, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+
+    private static byte[] readAll(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[8192];
+        int n;
+        while ((n = in.read(buffer)) > 0) {
+            out.write(buffer, 0, n);
+        }
+        return out.toByteArray();
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+}
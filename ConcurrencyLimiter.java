@@ -0,0 +1,140 @@
+package cn.yl.common.utils;
+
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * @author YL
+ * @Desc 自适应并发限制(AIMD) 根据请求耗时和结果调整同时进行的请求数
+ * <p>
+ * 分别统计短期和长期平均耗时 请求成功且短期平均耗时未超过长期平均耗时的{@link #TOLERANCE}倍时 若并发已用到一半以上则上限加1
+ * 请求失败或耗时过长时上限乘以{@link #BACKOFF} 在上次下调之前发出的请求不再触发下调 避免一次拥塞连续下调
+ * 使用显式锁等待 虚拟线程等待名额时不会占住载体线程
+ * @since 2024-10-25 20:48:31
+ */
+@SuppressWarnings("all")
+public class ConcurrencyLimiter {
+
+    /**
+     * 短期平均耗时超过长期平均耗时的倍数视为拥塞
+     */
+    public static final double TOLERANCE = 2.0;
+
+    /**
+     * 下调比例
+     */
+    public static final double BACKOFF = 0.75;
+
+    /**
+     * 短期平均耗时的平滑系数
+     */
+    private static final double SHORT_ALPHA = 0.2;
+
+    /**
+     * 长期平均耗时的平滑系数 服务端稳定变慢后逐渐成为新的基准
+     */
+    private static final double LONG_ALPHA = 0.01;
+
+    private final int minLimit;
+
+    private final int maxLimit;
+
+    private int limit;
+
+    private int inFlight;
+
+    private double shortRtt;
+
+    private double longRtt;
+
+    private long lastDecrease;
+
+    private final ReentrantLock lock = new ReentrantLock();
+
+    private final Condition available = lock.newCondition();
+
+    public ConcurrencyLimiter(int initialLimit, int minLimit, int maxLimit) {
+        this.minLimit = Math.max(1, minLimit);
+        this.maxLimit = Math.max(this.minLimit, maxLimit);
+        this.limit = Math.min(this.maxLimit, Math.max(this.minLimit, initialLimit));
+        this.lastDecrease = System.nanoTime();
+    }
+
+    /**
+     * 获取一个并发名额 达到上限时等待
+     *
+     * @return 开始时间 释放时传入
+     */
+    public long acquire() throws InterruptedException {
+        lock.lockInterruptibly();
+        try {
+            while (inFlight >= limit) {
+                available.await();
+            }
+            inFlight++;
+            return System.nanoTime();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 释放名额并根据本次请求调整上限
+     *
+     * @param start   {@link #acquire()}返回的开始时间
+     * @param success 请求是否成功
+     */
+    public void release(long start, boolean success) {
+        lock.lock();
+        try {
+            long now = System.nanoTime();
+            long rtt = now - start;
+            inFlight--;
+            if (success) {
+                if (longRtt == 0) {
+                    shortRtt = longRtt = rtt;
+                } else {
+                    shortRtt += (rtt - shortRtt) * SHORT_ALPHA;
+                    longRtt += (rtt - longRtt) * LONG_ALPHA;
+                }
+            }
+            if (!success || shortRtt > longRtt * TOLERANCE) {
+                if (start - lastDecrease > 0) {
+                    limit = Math.max(minLimit, (int) (limit * BACKOFF));
+                    lastDecrease = now;
+                }
+            } else if (inFlight * 2 >= limit && limit < maxLimit) {
+                limit++;
+            }
+            available.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int getLimit() {
+        lock.lock();
+        try {
+            return limit;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int getInFlight() {
+        lock.lock();
+        try {
+            return inFlight;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "ConcurrencyLimiter{" +
+                "limit=" + getLimit() +
+                ", inFlight=" + getInFlight() +
+                '}';
+    }
+}
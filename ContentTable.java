@@ -0,0 +1,274 @@
+package cn.yl.common.utils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiConsumer;
+import java.util.stream.Collector;
+
+/**
+ * @author YL
+ * @Desc 紧凑的文件信息表 按列存储 目录路径去重为编号 文件名以UTF-8连续存放
+ * <p>
+ * 每行约20字节加文件名长度 同一目录的行以链表相连 按目录分组无需额外计算
+ * 适合百万级的搜索、列目录结果 需要对象时再用{@link #get(int)}生成
+ * 非线程安全
+ * @since 2024-10-28 20:05:36
+ */
+@SuppressWarnings("all")
+public class ContentTable {
+
+    private static final int[] EMPTY = new int[0];
+
+    /**
+     * 目录路径-编号
+     */
+    private final Map<String, Integer> parentIds = new HashMap<>();
+
+    private final List<String> parents = new ArrayList<>();
+
+    /**
+     * 每个目录的首行、末行、行数
+     */
+    private int[] heads = new int[16];
+    private int[] tails = new int[16];
+    private int[] counts = new int[16];
+
+    /**
+     * 每行的目录编号、同目录下一行、文件名在names中的起始位置、大小、类型
+     */
+    private int[] parentOf;
+    private int[] next;
+    private int[] nameStart;
+    private long[] sizes;
+    private int[] types;
+    private final BitSet dirs = new BitSet();
+
+    private byte[] names;
+    private int nameLength;
+
+    private int size;
+
+    public ContentTable() {
+        this(1024);
+    }
+
+    public ContentTable(int capacity) {
+        int rows = Math.max(16, capacity);
+        parentOf = new int[rows];
+        next = new int[rows];
+        nameStart = new int[rows + 1];
+        sizes = new long[rows];
+        types = new int[rows];
+        names = new byte[rows * 16];
+    }
+
+    public static ContentTable of(List<AList.Content> contents) {
+        ContentTable table = new ContentTable(contents == null ? 0 : contents.size());
+        if (contents != null) {
+            for (AList.Content content : contents) {
+                table.add(content);
+            }
+        }
+        return table;
+    }
+
+    /**
+     * 用于Stream收集 例：searchStream(search, token).collect(ContentTable.collector())
+     */
+    public static Collector<AList.Content, ?, ContentTable> collector() {
+        return Collector.of(ContentTable::new, ContentTable::add, (a, b) -> {
+            a.addAll(b);
+            return a;
+        });
+    }
+
+    public int add(AList.Content content) {
+        return add(content.getParent(), content.getName(), content.getIsDir(), content.getSize(), content.getType());
+    }
+
+    /**
+     * 添加一行
+     *
+     * @return 行号
+     */
+    public int add(String parent, String name, boolean isDir, long size, long type) {
+        if (this.size == parentOf.length) grow();
+        int row = this.size++;
+        int parentId = intern(parent);
+        parentOf[row] = parentId;
+        next[row] = -1;
+        if (counts[parentId]++ == 0) {
+            heads[parentId] = row;
+        } else {
+            next[tails[parentId]] = row;
+        }
+        tails[parentId] = row;
+        byte[] bytes = name.getBytes(StandardCharsets.UTF_8);
+        if (nameLength + bytes.length > names.length) {
+            names = Arrays.copyOf(names, Math.max(names.length * 2, nameLength + bytes.length));
+        }
+        System.arraycopy(bytes, 0, names, nameLength, bytes.length);
+        nameStart[row] = nameLength;
+        nameLength += bytes.length;
+        nameStart[row + 1] = nameLength;
+        sizes[row] = size;
+        types[row] = (int) type;
+        if (isDir) dirs.set(row);
+        return row;
+    }
+
+    public void addAll(ContentTable other) {
+        for (int row = 0; row < other.size; row++) {
+            add(other.parent(row), other.name(row), other.isDir(row), other.size(row), other.type(row));
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public String name(int row) {
+        return new String(names, nameStart[row], nameStart[row + 1] - nameStart[row], StandardCharsets.UTF_8);
+    }
+
+    public String parent(int row) {
+        return parents.get(parentOf[row]);
+    }
+
+    public int parentId(int row) {
+        return parentOf[row];
+    }
+
+    public long size(int row) {
+        return sizes[row];
+    }
+
+    public long type(int row) {
+        return types[row];
+    }
+
+    public boolean isDir(int row) {
+        return dirs.get(row);
+    }
+
+    /**
+     * 生成一行的文件信息对象
+     */
+    public AList.Content get(int row) {
+        return Builder.of(AList.Content::new)
+                .with(AList.Content::setParent, parent(row))
+                .with(AList.Content::setName, name(row))
+                .with(AList.Content::setIsDir, isDir(row))
+                .with(AList.Content::setSize, size(row))
+                .with(AList.Content::setType, type(row))
+                .build();
+    }
+
+    public List<AList.Content> toContents() {
+        List<AList.Content> contents = new ArrayList<>(size);
+        for (int row = 0; row < size; row++) {
+            contents.add(get(row));
+        }
+        return contents;
+    }
+
+    /**
+     * 目录数
+     */
+    public int parentCount() {
+        return parents.size();
+    }
+
+    public String parentPath(int parentId) {
+        return parents.get(parentId);
+    }
+
+    /**
+     * 目录下的行号 按添加顺序
+     */
+    public int[] rows(int parentId) {
+        int[] rows = new int[counts[parentId]];
+        for (int i = 0, row = heads[parentId]; i < rows.length; i++, row = next[row]) {
+            rows[i] = row;
+        }
+        return rows;
+    }
+
+    public int[] rows(String parent) {
+        Integer parentId = parentIds.get(parent);
+        return parentId == null ? EMPTY : rows(parentId);
+    }
+
+    /**
+     * 按目录遍历 目录按首次出现的顺序 跳过没有行的目录
+     */
+    public void forEachParent(BiConsumer<String, int[]> action) {
+        for (int parentId = 0; parentId < parents.size(); parentId++) {
+            if (counts[parentId] > 0) action.accept(parents.get(parentId), rows(parentId));
+        }
+    }
+
+    /**
+     * 删除newSize之后添加的行 用于丢弃解析失败的响应
+     */
+    public void truncate(int newSize) {
+        if (newSize >= size) return;
+        BitSet changed = new BitSet();
+        for (int row = size - 1; row >= newSize; row--) {
+            counts[parentOf[row]]--;
+            changed.set(parentOf[row]);
+        }
+        //单向链表 从头找到新的末行
+        for (int parentId = changed.nextSetBit(0); parentId >= 0; parentId = changed.nextSetBit(parentId + 1)) {
+            if (counts[parentId] == 0) continue;
+            int row = heads[parentId];
+            for (int i = 1; i < counts[parentId]; i++) {
+                row = next[row];
+            }
+            next[row] = -1;
+            tails[parentId] = row;
+        }
+        dirs.clear(newSize, size);
+        nameLength = nameStart[newSize];
+        size = newSize;
+    }
+
+    /**
+     * 目录下的文件名
+     */
+    public List<String> names(int[] rows) {
+        List<String> names = new ArrayList<>(rows.length);
+        for (int row : rows) {
+            names.add(name(row));
+        }
+        return names;
+    }
+
+    private int intern(String parent) {
+        Integer parentId = parentIds.get(parent);
+        if (parentId != null) return parentId;
+        parentId = parents.size();
+        parentIds.put(parent, parentId);
+        parents.add(parent);
+        if (parentId == heads.length) {
+            heads = Arrays.copyOf(heads, parentId * 2);
+            tails = Arrays.copyOf(tails, parentId * 2);
+            counts = Arrays.copyOf(counts, parentId * 2);
+        }
+        return parentId;
+    }
+
+    private void grow() {
+        int rows = parentOf.length * 2;
+        parentOf = Arrays.copyOf(parentOf, rows);
+        next = Arrays.copyOf(next, rows);
+        nameStart = Arrays.copyOf(nameStart, rows + 1);
+        sizes = Arrays.copyOf(sizes, rows);
+        types = Arrays.copyOf(types, rows);
+    }
+}
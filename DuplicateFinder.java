@@ -0,0 +1,213 @@
+package cn.yl.common.utils;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.regex.Pattern;
+
+/**
+ * @author YL
+ * @Desc 重复文件查找 按大小和规范化文件名分组 可选按文件首尾部分内容的哈希确认 每组保留一个 其余生成按目录分组的删除请求
+ * @since 2024-10-22 21:26:50
+ */
+@SuppressWarnings("all")
+public abstract class DuplicateFinder {
+
+    /**
+     * 计算哈希时读取的首、尾字节数
+     */
+    public static final int SAMPLE_BYTES = 64 * 1024;
+
+    /**
+     * 复制产生的后缀 例：(1)、（2）、 - 副本、 copy
+     */
+    private static final Pattern COPY_SUFFIX = Pattern.compile("(\\s*[(（]\\d+[)）]|\\s*-\\s*副本|\\s*copy)+$", Pattern.CASE_INSENSITIVE);
+
+    /**
+     * 查找重复文件
+     *
+     * @param searchMap   搜索结果 每个车牌单独分组
+     * @param excludeName 优先保留的文件名
+     * @param hash        是否读取文件首尾部分内容确认重复
+     * @param token       token
+     * @param parallelism 读取文件内容的并发数
+     * @return 按目录分组的删除请求
+     */
+    public static List<AList.Delete> find(Map<String, AList.Data> searchMap, Collection<String> excludeName, boolean hash,
+                                          String token, int parallelism) throws IOException {
+        Set<String> exclude = excludeName == null ? new HashSet<>() : new HashSet<>(excludeName);
+        Comparator<AList.Content> keep = keeper(exclude);
+        List<List<AList.Content>> groups = new ArrayList<>();
+        searchMap.forEach((k, v) -> {
+            if (v.getContent() != null) groups.addAll(groups(v.getContent()));
+        });
+        if (hash) {
+            List<List<AList.Content>> confirmed = new ArrayList<>();
+            for (List<AList.Content> group : groups) {
+                confirmed.addAll(splitByHash(group, token, parallelism));
+            }
+            groups.clear();
+            groups.addAll(confirmed);
+        }
+        Map<String, List<String>> deletes = new LinkedHashMap<>();
+        for (List<AList.Content> group : groups) {
+            group.sort(keep);
+            for (AList.Content content : group.subList(1, group.size())) {
+                if (exclude.contains(content.getName())) continue;
+                deletes.computeIfAbsent(content.getParent(), d -> new ArrayList<>()).add(content.getName());
+            }
+        }
+        List<AList.Delete> batchDelete = new ArrayList<>();
+        deletes.forEach((dir, names) -> batchDelete.add(Builder.of(AList.Delete::new)
+                .with(AList.Delete::setDir, dir)
+                .with(AList.Delete::setNames, names)
+                .build()));
+        return batchDelete;
+    }
+
+    /**
+     * 按大小和规范化文件名分组 只返回多于一个文件的组
+     */
+    static List<List<AList.Content>> groups(List<AList.Content> contents) {
+        Map<String, List<AList.Content>> groups = new LinkedHashMap<>();
+        for (AList.Content content : contents) {
+            if (content.getIsDir()) continue;
+            groups.computeIfAbsent(content.getSize() + "/" + normalize(content.getName()), k -> new ArrayList<>()).add(content);
+        }
+        List<List<AList.Content>> duplicates = new ArrayList<>();
+        groups.forEach((k, v) -> {
+            if (v.size() > 1) duplicates.add(v);
+        });
+        return duplicates;
+    }
+
+    /**
+     * 规范化文件名 有车牌时取车牌 否则取去掉扩展名和复制后缀的文件名 只保留字母数字并转为小写
+     */
+    static String normalize(String name) {
+        String base = stripExtension(name);
+        long span = PlateTokenizer.find(base);
+        if (span != PlateTokenizer.NOT_FOUND) {
+            base = base.substring(PlateTokenizer.start(span), PlateTokenizer.end(span));
+        } else {
+            base = COPY_SUFFIX.matcher(base).replaceAll("");
+        }
+        StringBuilder sb = new StringBuilder(base.length());
+        for (int i = 0; i < base.length(); i++) {
+            char c = base.charAt(i);
+            if (Character.isLetterOrDigit(c)) sb.append(Character.toLowerCase(c));
+        }
+        return sb.toString();
+    }
+
+    /**
+     * 保留顺序：优先保留的文件名、不带复制后缀、文件名较短、路径字典序
+     */
+    static Comparator<AList.Content> keeper(Set<String> exclude) {
+        return Comparator.<AList.Content>comparingInt(c -> exclude.contains(c.getName()) ? 0 : 1)
+                .thenComparingInt(c -> COPY_SUFFIX.matcher(stripExtension(c.getName())).find() ? 1 : 0)
+                .thenComparingInt(c -> c.getName().length())
+                .thenComparing(c -> c.getParent() + "/" + c.getName());
+    }
+
+    /**
+     * 按首尾部分内容的哈希拆分 读取失败的文件不参与删除
+     */
+    private static List<List<AList.Content>> splitByHash(List<AList.Content> group, String token, int parallelism) throws IOException {
+        ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, Math.min(parallelism, group.size())));
+        try {
+            List<Future<String>> futures = new ArrayList<>();
+            for (AList.Content content : group) {
+                futures.add(executor.submit(() -> sampleHash(content, token)));
+            }
+            Map<String, List<AList.Content>> byHash = new LinkedHashMap<>();
+            for (int i = 0; i < group.size(); i++) {
+                String hash;
+                try {
+                    hash = futures.get(i).get();
+                } catch (ExecutionException e) {
+                    System.err.printf("读取%s失败：%s%n", group.get(i).getName(), e.getCause());
+                    hash = null;
+                }
+                if (hash != null) byHash.computeIfAbsent(hash, k -> new ArrayList<>()).add(group.get(i));
+            }
+            List<List<AList.Content>> groups = new ArrayList<>();
+            byHash.forEach((k, v) -> {
+                if (v.size() > 1) groups.add(v);
+            });
+            return groups;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("读取文件内容被中断");
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * 文件首尾各{@link #SAMPLE_BYTES}字节加大小的SHA-256
+     * 只接受206部分内容 服务端不支持Range时视为读取失败 不会下载整个文件
+     *
+     * @return 读取失败返回null
+     */
+    static String sampleHash(AList.Content content, String token) throws NoSuchAlgorithmException, InterruptedIOException {
+        String rawUrl = rawUrl(LocalIndex.child(content.getParent(), content.getName()), token);
+        if (rawUrl == null) return null;
+        MessageDigest digest = MessageDigest.getInstance("SHA-256");
+        digest.update(Long.toString(content.getSize()).getBytes());
+        byte[] head = HttpUtil.httpGetRange(rawUrl, range("bytes=0-" + (SAMPLE_BYTES - 1)), SAMPLE_BYTES);
+        if (head == null) return null;
+        digest.update(head);
+        if (content.getSize() > SAMPLE_BYTES) {
+            byte[] tail = HttpUtil.httpGetRange(rawUrl, range("bytes=-" + SAMPLE_BYTES), SAMPLE_BYTES);
+            if (tail == null) return null;
+            digest.update(tail);
+        }
+        StringBuilder sb = new StringBuilder();
+        for (byte b : digest.digest()) {
+            sb.append(String.format("%02x", b));
+        }
+        return sb.toString();
+    }
+
+    /**
+     * 通过/api/fs/get获取文件直链
+     */
+    private static String rawUrl(String path, String token) throws InterruptedIOException {
+        String response = AList.getClient().postForString("/api/fs/get", new HashMap<String, String>() {{
+            this.put("path", path);
+        }}, token);
+        if (response == null) return null;
+        JsonNode node = JsonUtil.parseJSONObject(response);
+        if (node == null || node.path("code").asInt() != 200) return null;
+        String rawUrl = node.path("data").path("raw_url").asText(null);
+        return rawUrl == null || rawUrl.isEmpty() ? null : rawUrl;
+    }
+
+    private static Map<String, String> range(String range) {
+        Map<String, String> head = new HashMap<>();
+        head.put("Range", range);
+        return head;
+    }
+
+    private static String stripExtension(String name) {
+        int dot = name.lastIndexOf('.');
+        return dot > 0 ? name.substring(0, dot) : name;
+    }
+}
@@ -0,0 +1,313 @@
+package cn.yl.common.utils;
+
+import com.fasterxml.jackson.databind.MappingIterator;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * @author YL
+ * @Desc 失败记录日志 每条失败追加一行JSON(NDJSON) 批量刷盘 按大小滚动分段
+ * <p>
+ * 通过{@link #of(String)}共享的日志由后台线程定时刷盘 进程退出时再刷盘一次 调用方无需每条记录都刷盘
+ * <p>
+ * 日志文件为 path.000001、path.000002... 旧版本直接写入path的JSON数组文件仍可被{@link #read}读取
+ * @since 2024-10-16 20:48:51
+ */
+@SuppressWarnings("all")
+public class ErrorJournal implements Closeable {
+
+    /**
+     * 单个分段默认最大字节数
+     */
+    public static final long DEFAULT_SEGMENT_BYTES = 64L * 1024 * 1024;
+
+    /**
+     * 未刷盘字节数达到该值时刷盘
+     */
+    public static final long DEFAULT_SYNC_BYTES = 64L * 1024;
+
+    /**
+     * 距上次刷盘超过该时间(毫秒)时刷盘
+     */
+    public static final long DEFAULT_SYNC_INTERVAL = 1000L;
+
+    private static final Map<String, ErrorJournal> JOURNALS = new ConcurrentHashMap<>();
+
+    private static final byte[] NEW_LINE = {'\n'};
+
+    /**
+     * 定时刷盘共享日志中未刷盘的记录 没有后续追加时也不会一直停留在未刷盘状态
+     */
+    private static final ScheduledExecutorService SYNCER = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "error-journal-sync");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    static {
+        SYNCER.scheduleWithFixedDelay(ErrorJournal::flushAll, DEFAULT_SYNC_INTERVAL, DEFAULT_SYNC_INTERVAL, TimeUnit.MILLISECONDS);
+        Runtime.getRuntime().addShutdownHook(new Thread(ErrorJournal::flushAll, "error-journal-flush"));
+    }
+
+    private final String path;
+    private final long segmentBytes;
+    private final long syncBytes;
+    private final long syncInterval;
+    private int segment;
+    private FileChannel channel;
+    private long unsynced;
+    private long lastSync;
+
+    public ErrorJournal(String path, long segmentBytes, long syncBytes, long syncInterval) throws IOException {
+        this.path = path;
+        this.segmentBytes = segmentBytes;
+        this.syncBytes = syncBytes;
+        this.syncInterval = syncInterval;
+        List<Path> segments = segments(path);
+        this.segment = segments.isEmpty() ? 1 : sequence(segments.get(segments.size() - 1));
+        if (!segments.isEmpty()) {
+            repair(segments.get(segments.size() - 1));
+        }
+        this.channel = open(segment);
+        this.lastSync = System.currentTimeMillis();
+    }
+
+    /**
+     * 获取该路径共享的日志 同一路径在进程内只打开一次
+     */
+    public static ErrorJournal of(String path) {
+        return JOURNALS.computeIfAbsent(path, p -> {
+            try {
+                return new ErrorJournal(p, DEFAULT_SEGMENT_BYTES, DEFAULT_SYNC_BYTES, DEFAULT_SYNC_INTERVAL);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+    }
+
+    /**
+     * 追加一条失败记录
+     *
+     * @return 记录的JSON字节数(不含换行)
+     */
+    public synchronized int append(Object record) throws IOException {
+        byte[] bytes = JsonUtil.toByteArray(record);
+        if (bytes == null) return 0;
+        if (channel.size() > 0 && channel.size() + bytes.length + 1 > segmentBytes) {
+            rotate();
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(bytes.length + 1).put(bytes).put(NEW_LINE);
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        unsynced += bytes.length + 1;
+        long now = System.currentTimeMillis();
+        if (unsynced >= syncBytes || now - lastSync >= syncInterval) {
+            sync(now);
+        }
+        return bytes.length;
+    }
+
+    /**
+     * 刷盘全部共享日志
+     */
+    static void flushAll() {
+        for (ErrorJournal journal : JOURNALS.values()) {
+            try {
+                journal.flush();
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+
+    /**
+     * 立即刷盘
+     */
+    public synchronized void flush() throws IOException {
+        if (unsynced > 0) {
+            sync(System.currentTimeMillis());
+        }
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        flush();
+        channel.close();
+        JOURNALS.remove(path, this);
+    }
+
+    /**
+     * 流式读取全部失败记录 不会一次性加载到内存
+     * 崩溃时写了一半的最后一行会被跳过
+     *
+     * @param path 日志路径
+     * @param type 记录类型
+     * @return 使用完毕后需要关闭
+     */
+    public static <T> Stream<T> read(String path, Class<T> type) throws IOException {
+        Stream<T> stream = Stream.empty();
+        File legacy = new File(path);
+        if (legacy.isFile() && legacy.length() > 0) {
+            MappingIterator<T> iterator = JsonUtil.readValues(legacy, type);
+            stream = StreamSupport.stream(Spliterators.spliteratorUnknownSize(iterator, Spliterator.ORDERED), false)
+                    .onClose(() -> {
+                        try {
+                            iterator.close();
+                        } catch (IOException e) {
+                            e.printStackTrace();
+                        }
+                    });
+        }
+        return Stream.concat(stream, segments(path).stream().flatMap(p -> lines(p, type)));
+    }
+
+    /**
+     * 删除该路径的全部日志 一般在重新开始一次任务前调用
+     */
+    public static void reset(String path) throws IOException {
+        ErrorJournal journal = JOURNALS.remove(path);
+        if (journal != null) {
+            journal.close();
+        }
+        for (Path segment : segments(path)) {
+            Files.deleteIfExists(segment);
+        }
+        Files.deleteIfExists(Paths.get(path));
+    }
+
+    /**
+     * 按序号排列的分段文件
+     */
+    static List<Path> segments(String path) throws IOException {
+        Path base = Paths.get(path).toAbsolutePath();
+        Path dir = base.getParent();
+        if (dir == null || !Files.isDirectory(dir)) return Collections.emptyList();
+        String prefix = base.getFileName().toString() + ".";
+        List<Path> segments = new ArrayList<>();
+        try (Stream<Path> list = Files.list(dir)) {
+            list.filter(p -> {
+                String name = p.getFileName().toString();
+                return name.startsWith(prefix) && name.length() > prefix.length()
+                        && name.substring(prefix.length()).chars().allMatch(Character::isDigit);
+            }).forEach(segments::add);
+        }
+        segments.sort((o1, o2) -> Integer.compare(sequence(o1), sequence(o2)));
+        return segments;
+    }
+
+    private static int sequence(Path segment) {
+        String name = segment.getFileName().toString();
+        return Integer.parseInt(name.substring(name.lastIndexOf('.') + 1));
+    }
+
+    private static <T> Stream<T> lines(Path segment, Class<T> type) {
+        try {
+            BufferedReader reader = Files.newBufferedReader(segment, StandardCharsets.UTF_8);
+            return reader.lines()
+                    .filter(line -> !line.isEmpty())
+                    .map(line -> parse(line, type))
+                    .filter(Objects::nonNull)
+                    .onClose(() -> {
+                        try {
+                            reader.close();
+                        } catch (IOException e) {
+                            e.printStackTrace();
+                        }
+                    });
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * 崩溃时最后一行可能只写了一半 截断到最后一个换行 否则下一条记录会接在这一行后面
+     */
+    static void repair(Path segment) throws IOException {
+        try (FileChannel file = FileChannel.open(segment, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            long end = file.size();
+            ByteBuffer buffer = ByteBuffer.allocate(8192);
+            while (end > 0) {
+                long start = Math.max(0, end - buffer.capacity());
+                buffer.clear().limit((int) (end - start));
+                while (buffer.hasRemaining()) {
+                    if (file.read(buffer, start + buffer.position()) < 0) break;
+                }
+                for (int i = buffer.position() - 1; i >= 0; i--) {
+                    if (buffer.get(i) == '\n') {
+                        end = start + i + 1;
+                        if (end < file.size()) {
+                            System.err.printf("失败记录日志[%s]最后一行不完整 已截断%d字节%n", segment, file.size() - end);
+                            file.truncate(end);
+                            file.force(false);
+                        }
+                        return;
+                    }
+                }
+                end = start;
+            }
+            if (file.size() > 0) {
+                System.err.printf("失败记录日志[%s]没有完整的记录 已清空%n", segment);
+                file.truncate(0);
+                file.force(false);
+            }
+        }
+    }
+
+    /**
+     * 解析一行 不完整的行直接跳过
+     */
+    private static <T> T parse(String line, Class<T> type) {
+        try {
+            return JsonUtil.readValue(line, type);
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    private FileChannel open(int segment) throws IOException {
+        Path file = Paths.get(String.format("%s.%06d", path, segment));
+        if (file.getParent() != null) {
+            Files.createDirectories(file.getParent());
+        }
+        return FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+    }
+
+    private void rotate() throws IOException {
+        channel.force(false);
+        channel.close();
+        channel = open(++segment);
+        unsynced = 0;
+    }
+
+    private void sync(long now) throws IOException {
+        channel.force(false);
+        unsynced = 0;
+        lastSync = now;
+    }
+}
@@ -0,0 +1,230 @@
+package cn.yl.common.utils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * @author YL
+ * @Desc 本地模糊匹配 对文件名建立三字母(trigram)索引 为搜索失败的关键词找出最相近的文件 不再请求/api/fs/search
+ * <p>
+ * 文件名去掉扩展名 关键词和文件名都只保留字母数字并转为小写 例：abc123、ABC-123、[x]abc_123-C.mp4 可以互相匹配
+ * 得分为关键词的三字母在文件名中出现的比例 同分时文件名较短的在前
+ * 建立后只读 可多线程共享
+ * @since 2024-10-31 20:42:16
+ */
+@SuppressWarnings("all")
+public class FuzzyMatcher {
+
+    /**
+     * 默认最低得分
+     */
+    public static final double DEFAULT_MIN_SCORE = 0.6;
+
+    private static final int GRAM = 3;
+
+    private final ContentTable table;
+
+    /**
+     * 每行文件名中不同三字母的个数
+     */
+    private final int[] gramCounts;
+
+    /**
+     * 三字母-行号
+     */
+    private final Map<Long, int[]> postings;
+
+    /**
+     * 直接引用文件信息表 不复制 建立后不应再向表中添加
+     */
+    public FuzzyMatcher(ContentTable table) {
+        this.table = table;
+        this.gramCounts = new int[table.size()];
+        Map<Long, int[]> postings = new HashMap<>();
+        for (int row = 0; row < table.size(); row++) {
+            long[] grams = grams(normalize(stem(table.name(row), table.isDir(row))));
+            gramCounts[row] = grams.length;
+            for (long gram : grams) {
+                LocalIndex.post(postings, gram, row);
+            }
+        }
+        this.postings = LocalIndex.freeze(postings);
+    }
+
+    /**
+     * 基于本地索引中现有的全部文件建立
+     */
+    public static FuzzyMatcher of(LocalIndex index) {
+        ContentTable table = new ContentTable(index.size());
+        index.forEach(table::add);
+        return new FuzzyMatcher(table);
+    }
+
+    /**
+     * 基于搜索结果建立 例：爬取整盘的搜索结果
+     */
+    public static FuzzyMatcher of(Map<String, AList.Data> searchMap) {
+        ContentTable table = new ContentTable();
+        searchMap.forEach((k, v) -> {
+            if (v != null && v.getContent() != null) v.getContent().forEach(table::add);
+        });
+        return new FuzzyMatcher(table);
+    }
+
+    public List<Candidate> match(String keywords, int limit) {
+        return match(keywords, limit, DEFAULT_MIN_SCORE);
+    }
+
+    /**
+     * 查找最相近的文件
+     *
+     * @param keywords 关键词 一般为车牌
+     * @param limit    最多返回的个数
+     * @param minScore 最低得分 0~1
+     * @return 按得分从高到低 关键词的字母数字少于3个时为空
+     */
+    public List<Candidate> match(String keywords, int limit, double minScore) {
+        return match(keywords, limit, minScore, new int[table.size()]);
+    }
+
+    /**
+     * 批量查找 共用同一个计数数组 一般传入{@link AList#search}返回的搜索失败集合
+     *
+     * @param searchList 搜索失败的集合
+     * @param limit      每个关键词最多返回的个数
+     * @return 关键词-候选文件 按searchList的顺序
+     */
+    public Map<String, List<Candidate>> recover(Collection<AList.Search> searchList, int limit) {
+        int[] hits = new int[table.size()];
+        Map<String, List<Candidate>> recovered = new LinkedHashMap<>();
+        for (AList.Search search : searchList) {
+            String keywords = search.getKeywords();
+            if (keywords == null || recovered.containsKey(keywords)) continue;
+            recovered.put(keywords, match(keywords, limit, DEFAULT_MIN_SCORE, hits));
+        }
+        return recovered;
+    }
+
+    /**
+     * @param hits 每行命中的三字母个数 全为0 返回前恢复为0
+     */
+    private List<Candidate> match(String keywords, int limit, double minScore, int[] hits) {
+        long[] grams = grams(normalize(keywords));
+        if (grams.length == 0 || limit <= 0) return new ArrayList<>();
+        int[] touched = new int[16];
+        int touchedCount = 0;
+        for (long gram : grams) {
+            int[] posting = postings.get(gram);
+            if (posting == null) continue;
+            for (int row : posting) {
+                if (hits[row]++ == 0) {
+                    if (touchedCount == touched.length) touched = Arrays.copyOf(touched, touchedCount * 2);
+                    touched[touchedCount++] = row;
+                }
+            }
+        }
+        //至少需要命中的个数
+        int minHits = Math.max(1, (int) Math.ceil(grams.length * minScore));
+        List<Candidate> candidates = new ArrayList<>();
+        for (int i = 0; i < touchedCount; i++) {
+            int row = touched[i];
+            if (hits[row] >= minHits) {
+                candidates.add(new Candidate(row, (double) hits[row] / grams.length));
+            }
+            hits[row] = 0;
+        }
+        candidates.sort((o1, o2) -> {
+            int compare = Double.compare(o2.score, o1.score);
+            if (compare != 0) return compare;
+            compare = Integer.compare(gramCounts[o1.row], gramCounts[o2.row]);
+            return compare != 0 ? compare : Integer.compare(o1.row, o2.row);
+        });
+        return candidates.size() > limit ? new ArrayList<>(candidates.subList(0, limit)) : candidates;
+    }
+
+    /**
+     * 去掉文件扩展名
+     */
+    static String stem(String name, boolean isDir) {
+        int dot = name.lastIndexOf('.');
+        return isDir || dot <= 0 ? name : name.substring(0, dot);
+    }
+
+    /**
+     * 只保留字母数字 转为小写
+     */
+    static String normalize(String text) {
+        if (text == null) return "";
+        StringBuilder builder = new StringBuilder(text.length());
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (Character.isLetterOrDigit(c)) builder.append(c);
+        }
+        return builder.toString().toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * 不同的三字母 每个字符占16位
+     */
+    static long[] grams(String normalized) {
+        int count = normalized.length() - GRAM + 1;
+        if (count <= 0) return new long[0];
+        long[] grams = new long[count];
+        for (int i = 0; i < count; i++) {
+            grams[i] = ((long) normalized.charAt(i) << 32) | ((long) normalized.charAt(i + 1) << 16) | normalized.charAt(i + 2);
+        }
+        Arrays.sort(grams);
+        int distinct = 0;
+        for (int i = 0; i < grams.length; i++) {
+            if (i == 0 || grams[i] != grams[i - 1]) grams[distinct++] = grams[i];
+        }
+        return Arrays.copyOf(grams, distinct);
+    }
+
+    /**
+     * 候选文件
+     */
+    public class Candidate {
+        private final int row;
+        private final double score;
+
+        Candidate(int row, double score) {
+            this.row = row;
+            this.score = score;
+        }
+
+        /**
+         * 得分 0~1
+         */
+        public double getScore() {
+            return score;
+        }
+
+        public String getName() {
+            return table.name(row);
+        }
+
+        public String getParent() {
+            return table.parent(row);
+        }
+
+        public AList.Content getContent() {
+            return table.get(row);
+        }
+
+        @Override
+        public String toString() {
+            return "Candidate{" +
+                    "parent='" + getParent() + '\'' +
+                    ", name='" + getName() + '\'' +
+                    ", score=" + score +
+                    '}';
+        }
+    }
+}
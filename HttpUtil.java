@@ -9,25 +9,173 @@ import org.apache.http.entity.ContentType;
 import org.apache.http.entity.StringEntity;
 import org.apache.http.entity.mime.MultipartEntityBuilder;
 import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.DefaultConnectionKeepAliveStrategy;
 import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
 import org.apache.http.message.BasicNameValuePair;
 import org.apache.http.protocol.HTTP;
-import org.apache.http.protocol.HttpContext;
 import org.apache.http.util.EntityUtils;
 import org.springframework.http.MediaType;
 
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.UnsupportedEncodingException;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
 
 /**
  * http 请求工具 添加依赖httpmime
+ * <p>
+ * 所有请求共用一个带连接池的客户端 复用TCP/TLS连接 可通过{@link #configure(int, int, long)}调整连接数或{@link #setClient(CloseableHttpClient)}替换
  */
 @SuppressWarnings("all")
 public abstract class HttpUtil {
+
+    /**
+     * 默认总连接数
+     */
+    public static final int DEFAULT_MAX_TOTAL = 200;
+
+    /**
+     * 默认每个服务(路由)的连接数
+     */
+    public static final int DEFAULT_MAX_PER_ROUTE = 20;
+
+    /**
+     * 默认空闲连接保留时间(秒) 服务端未返回Keep-Alive时连接也保持该时间
+     */
+    public static final long DEFAULT_IDLE_SECONDS = 30;
+
+    /**
+     * 替换后等待原客户端上的请求完成的最长时间(毫秒) 略大于请求的读取超时
+     */
+    private static final long CLOSE_TIMEOUT_MILLIS = 120_000L;
+
+    /**
+     * 替换后至少等待的时间(毫秒) 已取得原客户端但尚未取得连接的请求在此期间开始
+     */
+    private static final long CLOSE_GRACE_MILLIS = 1000L;
+
+    private static volatile CloseableHttpClient client;
+
+    /**
+     * 当前客户端的连接池 由{@link #setClient}传入的客户端为null
+     */
+    private static PoolingHttpClientConnectionManager connectionManager;
+
+    /**
+     * 当前客户端是否由本类创建 由{@link #setClient}传入的客户端由调用方关闭
+     */
+    private static boolean owned;
+
+    /**
+     * 共用的客户端 未设置时按默认参数创建
+     */
+    public static CloseableHttpClient getClient() {
+        CloseableHttpClient current = client;
+        if (current == null) {
+            synchronized (HttpUtil.class) {
+                current = client;
+                if (current == null) {
+                    connectionManager = createConnectionManager(DEFAULT_MAX_TOTAL, DEFAULT_MAX_PER_ROUTE);
+                    client = current = createClient(connectionManager, DEFAULT_IDLE_SECONDS);
+                    owned = true;
+                }
+            }
+        }
+        return current;
+    }
+
+    /**
+     * 替换共用的客户端 原客户端需由调用方关闭
+     */
+    public static synchronized void setClient(CloseableHttpClient httpClient) {
+        client = httpClient;
+        connectionManager = null;
+        owned = false;
+    }
+
+    /**
+     * 按参数重建共用的客户端 之后的请求使用新客户端
+     * 原客户端由本类创建时不会立即关闭 后台等待其上的请求全部归还连接后再关闭 最长等待{@link #CLOSE_TIMEOUT_MILLIS}
+     * 原客户端由{@link #setClient}传入时不关闭 仍由调用方关闭
+     *
+     * @param maxTotal    总连接数
+     * @param maxPerRoute 每个服务(路由)的连接数
+     * @param idleSeconds 空闲连接保留时间(秒)
+     */
+    public static void configure(int maxTotal, int maxPerRoute, long idleSeconds) {
+        CloseableHttpClient previous;
+        PoolingHttpClientConnectionManager previousManager;
+        synchronized (HttpUtil.class) {
+            previous = owned ? client : null;
+            previousManager = connectionManager;
+            connectionManager = createConnectionManager(maxTotal, maxPerRoute);
+            client = createClient(connectionManager, idleSeconds);
+            owned = true;
+        }
+        if (previous != null) {
+            closeWhenIdle(previous, previousManager);
+        }
+    }
+
+    /**
+     * 后台等待连接全部归还后关闭 连接池未知时只等待{@link #CLOSE_GRACE_MILLIS}
+     */
+    private static void closeWhenIdle(CloseableHttpClient previous, PoolingHttpClientConnectionManager manager) {
+        Thread thread = new Thread(() -> {
+            long deadline = System.currentTimeMillis() + CLOSE_TIMEOUT_MILLIS;
+            try {
+                Thread.sleep(CLOSE_GRACE_MILLIS);
+                while (manager != null && manager.getTotalStats().getLeased() > 0 && System.currentTimeMillis() < deadline) {
+                    Thread.sleep(100);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            try {
+                previous.close();
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }, "http-client-close");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * 创建带连接池的客户端 定时清理过期和空闲的连接
+     */
+    public static CloseableHttpClient createClient(int maxTotal, int maxPerRoute, long idleSeconds) {
+        return createClient(createConnectionManager(maxTotal, maxPerRoute), idleSeconds);
+    }
+
+    private static PoolingHttpClientConnectionManager createConnectionManager(int maxTotal, int maxPerRoute) {
+        PoolingHttpClientConnectionManager connectionManager = new PoolingHttpClientConnectionManager();
+        connectionManager.setMaxTotal(Math.max(1, maxTotal));
+        connectionManager.setDefaultMaxPerRoute(Math.max(1, Math.min(maxTotal, maxPerRoute)));
+        connectionManager.setValidateAfterInactivity(2000);
+        return connectionManager;
+    }
+
+    private static CloseableHttpClient createClient(PoolingHttpClientConnectionManager connectionManager, long idleSeconds) {
+        long idleMillis = TimeUnit.SECONDS.toMillis(idleSeconds);
+        return HttpClients.custom()
+                .setConnectionManager(connectionManager)
+                .setKeepAliveStrategy((response, context) -> {
+                    //优先使用服务端返回的Keep-Alive
+                    long keepAlive = DefaultConnectionKeepAliveStrategy.INSTANCE.getKeepAliveDuration(response, context);
+                    return keepAlive > 0 ? Math.min(keepAlive, idleMillis) : idleMillis;
+                })
+                .evictExpiredConnections()
+                .evictIdleConnections(idleSeconds, TimeUnit.SECONDS)
+                .build();
+    }
+
     /**
      * get请求 params传参
      *
@@ -38,8 +186,8 @@ public abstract class HttpUtil {
      */
     public static String doHttpGet(String url, Map<String, String> params, Map<String, String> headParams) {
         String result = null;
-        //1.获取httpclient
-        CloseableHttpClient httpClient = HttpClients.createDefault();
+        //1.获取共用的httpclient
+        CloseableHttpClient httpClient = getClient();
         //接口返回结果
         CloseableHttpResponse response = null;
         String paramStr = null;
@@ -89,7 +237,7 @@ public abstract class HttpUtil {
         } catch (IOException e) {
             e.printStackTrace();
         } finally {
-            //8.关闭所有资源连接
+            //8.关闭响应 连接放回连接池
             if (null != response) {
                 try {
                     response.close();
@@ -97,18 +245,54 @@ public abstract class HttpUtil {
                     e.printStackTrace();
                 }
             }
-            if (null != httpClient) {
-                try {
-                    httpClient.close();
-                } catch (IOException e) {
-                    e.printStackTrace();
-                }
-            }
         }
         return result;
     }
 
 
+    /**
+     * Range请求 只接受206部分内容 最多读取maxBytes字节
+     * 服务端不支持Range时会返回200和整个文件 此时直接中断连接返回null 不读取响应体
+     *
+     * @param url        请求路径
+     * @param headParams 请求头 需包含Range
+     * @param maxBytes   最多读取的字节数 超出的部分不读取并中断连接
+     * @return 请求失败或不是206时返回null
+     */
+    public static byte[] httpGetRange(String url, Map<String, String> headParams, int maxBytes) {
+        HttpGet httpGet = new HttpGet(url);
+        RequestConfig requestConfig = RequestConfig.custom().setSocketTimeout(100000).setConnectTimeout(100000).build();
+        httpGet.setConfig(requestConfig);
+        if (headParams != null) {
+            for (String head : headParams.keySet()) {
+                httpGet.addHeader(head, headParams.get(head));
+            }
+        }
+        try (CloseableHttpResponse response = getClient().execute(httpGet)) {
+            int statusCode = response.getStatusLine().getStatusCode();
+            HttpEntity entity = response.getEntity();
+            if (HttpStatus.SC_PARTIAL_CONTENT != statusCode || entity == null) {
+                httpGet.abort();
+                System.err.printf("Range请求未返回部分内容：%s %d%n", url, statusCode);
+                return null;
+            }
+            ByteArrayOutputStream out = new ByteArrayOutputStream(Math.min(maxBytes, 64 * 1024));
+            byte[] buffer = new byte[8192];
+            try (InputStream in = entity.getContent()) {
+                int read;
+                while (out.size() < maxBytes && (read = in.read(buffer, 0, Math.min(buffer.length, maxBytes - out.size()))) != -1) {
+                    out.write(buffer, 0, read);
+                }
+                //超出的部分不再读取 中断连接
+                if (in.read() != -1) httpGet.abort();
+            }
+            return out.toByteArray();
+        } catch (IOException e) {
+            e.printStackTrace();
+            return null;
+        }
+    }
+
     /**
      * http post params传参
      *
@@ -119,8 +303,8 @@ public abstract class HttpUtil {
      */
     public static String doPost(String url, Map<String, String> params, Map<String, String> headParams) {
         String result = null;
-        //1. 获取httpclient对象
-        CloseableHttpClient httpClient = HttpClients.createDefault();
+        //1. 获取共用的httpclient对象
+        CloseableHttpClient httpClient = getClient();
         CloseableHttpResponse response = null;
         try {
             //2. 创建post请求
@@ -165,7 +349,7 @@ public abstract class HttpUtil {
         } catch (IOException e) {
             e.printStackTrace();
         } finally {
-            //8. 关闭所有资源连接
+            //8. 关闭响应 连接放回连接池
             if (null != response) {
                 try {
                     response.close();
@@ -173,13 +357,6 @@ public abstract class HttpUtil {
                     e.printStackTrace();
                 }
             }
-            if (null != httpClient) {
-                try {
-                    httpClient.close();
-                } catch (IOException e) {
-                    e.printStackTrace();
-                }
-            }
         }
         return result;
     }
@@ -212,8 +389,8 @@ public abstract class HttpUtil {
 
     private static String process(HttpEntityEnclosingRequestBase requestBase, String params, Map<String, String> headParams) {
         String result = null;
-        // 1. 获取httpclient对象
-        CloseableHttpClient httpClient = HttpClients.createDefault();
+        // 1. 获取共用的httpclient对象
+        CloseableHttpClient httpClient = getClient();
         CloseableHttpResponse response = null;
         try {
             // 3. 设置请求和传输超时时间
@@ -247,7 +424,7 @@ public abstract class HttpUtil {
         } catch (IOException e) {
             e.printStackTrace();
         } finally {
-            // 8. 关闭所有资源连接
+            // 8. 关闭响应 连接放回连接池
             if (null != response) {
                 try {
                     response.close();
@@ -255,13 +432,6 @@ public abstract class HttpUtil {
                     e.printStackTrace();
                 }
             }
-            if (null != httpClient) {
-                try {
-                    httpClient.close();
-                } catch (IOException e) {
-                    e.printStackTrace();
-                }
-            }
         }
         return result;
     }
@@ -275,29 +445,6 @@ public abstract class HttpUtil {
      */
     public static String httpPost(String url, File file) {
         try {
-            // 创建 HttpClient 实例
-            CloseableHttpClient httpClient = HttpClients.custom()
-                    .addInterceptorFirst(new HttpRequestInterceptor() {
-                        //在这里加入拦截器，对文件请求的contentType做出处理
-                        @Override
-                        public void process(HttpRequest request, HttpContext context) throws HttpException, IOException {
-                            if (request instanceof HttpEntityEnclosingRequest) {
-                                HttpEntityEnclosingRequest entityRequest = (HttpEntityEnclosingRequest) request;
-                                HttpEntity entity = entityRequest.getEntity();
-                                if (entity != null && entity.getContentType() != null && entity.getContentType().getValue().startsWith("multipart/form-data")) {
-                                    String contentType = entity.getContentType().getValue();
-                                    String accept = MediaType.ALL.toString();
-                                    entityRequest.setHeader("x-tilake-app-key", "");
-                                    entityRequest.setHeader("x-tilake-ca-timestamp", "");
-                                    entityRequest.setHeader("x-tilake-ca-signature", "");
-                                    entityRequest.setHeader("Conetent-Type", contentType);
-                                    entityRequest.setHeader("Accept", accept);
-                                }
-                            }
-                        }
-                    })
-                    .build();
-
             // 创建 HTTP POST 请求
             HttpPost httpPost = new HttpPost(url);
             // 设置请求体内容
@@ -312,16 +459,22 @@ public abstract class HttpUtil {
             // 设置请求实体内容
             HttpEntity entity = builder.build();
             httpPost.setEntity(entity);
-            // 执行请求并获取响应
-            HttpResponse response = httpClient.execute(httpPost);
-            // 解析响应
-            HttpEntity responseEntity = response.getEntity();
-            String responseBody = EntityUtils.toString(responseEntity);
-            // 处理响应结果
-            System.out.println(responseBody);
-            // 关闭 HttpClient
-            httpClient.close();
-            return responseBody;
+            //对文件请求的contentType做出处理
+            String contentType = entity.getContentType().getValue();
+            httpPost.setHeader("x-tilake-app-key", "");
+            httpPost.setHeader("x-tilake-ca-timestamp", "");
+            httpPost.setHeader("x-tilake-ca-signature", "");
+            httpPost.setHeader("Conetent-Type", contentType);
+            httpPost.setHeader("Accept", MediaType.ALL.toString());
+            // 执行请求并获取响应 使用共用的客户端 关闭响应后连接放回连接池
+            try (CloseableHttpResponse response = getClient().execute(httpPost)) {
+                // 解析响应
+                HttpEntity responseEntity = response.getEntity();
+                String responseBody = EntityUtils.toString(responseEntity);
+                // 处理响应结果
+                System.out.println(responseBody);
+                return responseBody;
+            }
         } catch (Exception e) {
             e.printStackTrace();
         }
@@ -0,0 +1,222 @@
+package cn.yl.common.utils;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.BitSet;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.stream.Stream;
+
+/**
+ * @author YL
+ * @Desc 长任务检查点 按licensePlateMap的索引记录每个阶段已完成的车牌 以及已取得的搜索结果 进程重启后从中断处继续
+ * <p>
+ * 每个阶段一个位图 完成时先追加到该阶段的日志(stage.log) {@link #save()}时写入位图快照(stage.bitmap)并清空日志
+ * 搜索结果逐条追加到search.json 打开时全部读回
+ * 完成包括成功和已写入失败日志两种情况 请求失败的车牌同样标记为完成 恢复时不再重复处理
+ * 失败的记录只能通过{@link AListReplay}重放失败日志恢复 例：移动失败的用{@link AListReplay#replayMove}重放errorMove
+ * 一个目录对应一次搜索结果及其后续操作 线程安全
+ * @since 2024-10-29 21:14:50
+ */
+@SuppressWarnings("all")
+public class JobCheckpoint implements Closeable {
+
+    /**
+     * 阶段
+     */
+    public enum Stage {
+        SEARCH, RENAME, MOVE
+    }
+
+    /**
+     * 距上次快照新增的完成数达到该值时写入快照
+     */
+    public static final int DEFAULT_SAVE_EVERY = 10_000;
+
+    private final File dir;
+
+    private final int saveEvery;
+
+    private final Map<Stage, BitSet> done = new EnumMap<>(Stage.class);
+
+    private final Map<Stage, ErrorJournal> logs = new EnumMap<>(Stage.class);
+
+    private final Map<String, AList.Data> searchMap = new LinkedHashMap<>();
+
+    private final ErrorJournal searched;
+
+    private int unsaved;
+
+    public JobCheckpoint(File dir) throws IOException {
+        this(dir, DEFAULT_SAVE_EVERY);
+    }
+
+    public JobCheckpoint(File dir, int saveEvery) throws IOException {
+        this.dir = dir;
+        this.saveEvery = Math.max(1, saveEvery);
+        Files.createDirectories(dir.toPath());
+        for (Stage stage : Stage.values()) {
+            BitSet bits = load(bitmap(stage));
+            try (Stream<Integer> stream = ErrorJournal.read(log(stage), Integer.class)) {
+                stream.forEach(bits::set);
+            }
+            done.put(stage, bits);
+            logs.put(stage, new ErrorJournal(log(stage), ErrorJournal.DEFAULT_SEGMENT_BYTES, ErrorJournal.DEFAULT_SYNC_BYTES, ErrorJournal.DEFAULT_SYNC_INTERVAL));
+        }
+        String searchPath = new File(dir, "search.json").getPath();
+        try (Stream<Searched> stream = ErrorJournal.read(searchPath, Searched.class)) {
+            stream.forEach(s -> {
+                searchMap.put(s.getLicensePlate(), s.getData());
+                done.get(Stage.SEARCH).set(s.getIndex());
+            });
+        }
+        searched = new ErrorJournal(searchPath, ErrorJournal.DEFAULT_SEGMENT_BYTES, ErrorJournal.DEFAULT_SYNC_BYTES, ErrorJournal.DEFAULT_SYNC_INTERVAL);
+    }
+
+    /**
+     * 该索引在此阶段是否已完成
+     */
+    public synchronized boolean isDone(Stage stage, int index) {
+        return done.get(stage).get(index);
+    }
+
+    /**
+     * 此阶段第一个未完成的索引 即连续完成的最后一个索引加1
+     */
+    public synchronized int nextIndex(Stage stage) {
+        return done.get(stage).nextClearBit(0);
+    }
+
+    /**
+     * 此阶段已完成的数量
+     */
+    public synchronized int doneCount(Stage stage) {
+        return done.get(stage).cardinality();
+    }
+
+    /**
+     * 标记完成
+     */
+    public synchronized void done(Stage stage, int index) throws IOException {
+        BitSet bits = done.get(stage);
+        if (bits.get(index)) return;
+        bits.set(index);
+        logs.get(stage).append(index);
+        if (++unsaved >= saveEvery) {
+            save();
+        }
+    }
+
+    /**
+     * 记录搜索结果并标记搜索完成
+     *
+     * @param data 搜索失败为null 只标记完成
+     */
+    public synchronized void searched(int index, String licensePlate, AList.Data data) throws IOException {
+        if (data != null) {
+            searchMap.put(licensePlate, data);
+            searched.append(Builder.of(Searched::new)
+                    .with(Searched::setIndex, index)
+                    .with(Searched::setLicensePlate, licensePlate)
+                    .with(Searched::setData, data)
+                    .build());
+        }
+        done(Stage.SEARCH, index);
+    }
+
+    /**
+     * 已取得的搜索结果 按记录顺序
+     */
+    public synchronized Map<String, AList.Data> getSearchMap() {
+        return new LinkedHashMap<>(searchMap);
+    }
+
+    /**
+     * 写入位图快照并清空日志 先替换快照再删除日志 中途崩溃时重复读取日志不影响结果
+     */
+    public synchronized void save() throws IOException {
+        searched.flush();
+        for (Stage stage : Stage.values()) {
+            Path bitmap = bitmap(stage).toPath();
+            Path tmp = new File(dir, stage.name().toLowerCase() + ".bitmap.tmp").toPath();
+            Files.write(tmp, done.get(stage).toByteArray());
+            Files.move(tmp, bitmap, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            logs.get(stage).close();
+            ErrorJournal.reset(log(stage));
+            logs.put(stage, new ErrorJournal(log(stage), ErrorJournal.DEFAULT_SEGMENT_BYTES, ErrorJournal.DEFAULT_SYNC_BYTES, ErrorJournal.DEFAULT_SYNC_INTERVAL));
+        }
+        unsaved = 0;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        save();
+        searched.close();
+        for (ErrorJournal log : logs.values()) {
+            log.close();
+        }
+    }
+
+    /**
+     * 删除检查点目录下的全部记录 一般在重新开始一次任务前调用
+     */
+    public static void reset(File dir) throws IOException {
+        ErrorJournal.reset(new File(dir, "search.json").getPath());
+        for (Stage stage : Stage.values()) {
+            String name = stage.name().toLowerCase();
+            ErrorJournal.reset(new File(dir, name + ".log").getPath());
+            Files.deleteIfExists(new File(dir, name + ".bitmap").toPath());
+            Files.deleteIfExists(new File(dir, name + ".bitmap.tmp").toPath());
+        }
+    }
+
+    private File bitmap(Stage stage) {
+        return new File(dir, stage.name().toLowerCase() + ".bitmap");
+    }
+
+    private String log(Stage stage) {
+        return new File(dir, stage.name().toLowerCase() + ".log").getPath();
+    }
+
+    private static BitSet load(File bitmap) throws IOException {
+        return bitmap.isFile() ? BitSet.valueOf(Files.readAllBytes(bitmap.toPath())) : new BitSet();
+    }
+
+    /**
+     * 搜索结果记录
+     */
+    public static class Searched {
+        private int index;
+        private String licensePlate;
+        private AList.Data data;
+
+        public int getIndex() {
+            return index;
+        }
+
+        public void setIndex(int index) {
+            this.index = index;
+        }
+
+        public String getLicensePlate() {
+            return licensePlate;
+        }
+
+        public void setLicensePlate(String licensePlate) {
+            this.licensePlate = licensePlate;
+        }
+
+        public AList.Data getData() {
+            return data;
+        }
+
+        public void setData(AList.Data data) {
+            this.data = data;
+        }
+    }
+}
@@ -0,0 +1,235 @@
+package cn.yl.common.utils;
+
+import com.alibaba.excel.EasyExcel;
+import com.alibaba.excel.context.AnalysisContext;
+import com.alibaba.excel.event.AnalysisEventListener;
+
+import java.io.File;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.function.IntFunction;
+
+/**
+ * @author YL
+ * @Desc 任务输入 车牌、演员按列存储 行号即索引 演员名去重后以编号引用
+ * <p>
+ * 由{@link #load}从Excel/CSV逐行读取 不生成整表对象 车牌为空的行跳过
+ * 取代Map&lt;Integer, String&gt;形式的licensePlateMap、actorNameMap 仍需Map的接口可使用{@link #licensePlateMap()}、{@link #actorNameMap()}视图
+ * 加载完成后只读 可多线程共享
+ * @since 2024-10-30 20:18:45
+ */
+@SuppressWarnings("all")
+public class JobInput {
+
+    /**
+     * 没有演员
+     */
+    public static final int NO_ACTOR = -1;
+
+    private String[] plates;
+
+    private int[] actorIds;
+
+    private final List<String> actors = new ArrayList<>();
+
+    private final Map<String, Integer> actorIndex = new HashMap<>();
+
+    private int size;
+
+    public JobInput() {
+        this(1024);
+    }
+
+    public JobInput(int capacity) {
+        int rows = Math.max(16, capacity);
+        plates = new String[rows];
+        actorIds = new int[rows];
+    }
+
+    /**
+     * 读取表格 第一行为表头
+     *
+     * @param file        xlsx、xls或csv 多个工作表依次读取
+     * @param plateColumn 车牌所在列 从0开始
+     * @param actorColumn 演员所在列 从0开始
+     */
+    public static JobInput load(File file, int plateColumn, int actorColumn) {
+        return load(file, plateColumn, actorColumn, 1);
+    }
+
+    /**
+     * 读取表格
+     *
+     * @param headRows 表头行数
+     */
+    public static JobInput load(File file, int plateColumn, int actorColumn, int headRows) {
+        JobInput input = new JobInput();
+        EasyExcel.read(file, new AnalysisEventListener<Map<Integer, String>>() {
+            @Override
+            public void invoke(Map<Integer, String> row, AnalysisContext context) {
+                input.add(row.get(plateColumn), row.get(actorColumn));
+            }
+
+            @Override
+            public void doAfterAllAnalysed(AnalysisContext context) {
+            }
+        }).headRowNumber(headRows).doReadAll();
+        return input;
+    }
+
+    /**
+     * 从旧的Map形式转换 按licensePlateMap的遍历顺序重新编号
+     */
+    public static JobInput of(Map<Integer, String> licensePlateMap, Map<Integer, String> actorNameMap) {
+        JobInput input = new JobInput(licensePlateMap.size());
+        licensePlateMap.forEach((i, plate) -> input.add(plate, actorNameMap == null ? null : actorNameMap.get(i)));
+        return input;
+    }
+
+    /**
+     * 添加一行
+     *
+     * @param actor 演员 可为空
+     * @return 行号 车牌为空时返回-1
+     */
+    public int add(String plate, String actor) {
+        if (plate == null || (plate = plate.trim()).isEmpty()) return -1;
+        if (size == plates.length) {
+            plates = Arrays.copyOf(plates, size * 2);
+            actorIds = Arrays.copyOf(actorIds, size * 2);
+        }
+        plates[size] = plate;
+        actorIds[size] = actorId(actor);
+        return size++;
+    }
+
+    private int actorId(String actor) {
+        if (actor == null || (actor = actor.trim()).isEmpty()) return NO_ACTOR;
+        Integer id = actorIndex.get(actor);
+        if (id != null) return id;
+        id = actors.size();
+        actorIndex.put(actor, id);
+        actors.add(actor);
+        return id;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public String plate(int row) {
+        return plates[row];
+    }
+
+    /**
+     * 演员编号 没有演员为{@link #NO_ACTOR}
+     */
+    public int actorId(int row) {
+        return actorIds[row];
+    }
+
+    /**
+     * 演员 没有演员为null
+     */
+    public String actor(int row) {
+        int id = actorIds[row];
+        return id == NO_ACTOR ? null : actors.get(id);
+    }
+
+    /**
+     * 去重后的演员数
+     */
+    public int actorCount() {
+        return actors.size();
+    }
+
+    public String actorName(int actorId) {
+        return actors.get(actorId);
+    }
+
+    /**
+     * 全部车牌 按行号 只读视图
+     */
+    public List<String> plates() {
+        return Collections.unmodifiableList(Arrays.asList(plates).subList(0, size));
+    }
+
+    /**
+     * 行号-车牌 只读视图 不复制数据
+     */
+    public Map<Integer, String> licensePlateMap() {
+        return new ColumnMap(this::plate);
+    }
+
+    /**
+     * 行号-演员 只读视图 不复制数据
+     */
+    public Map<Integer, String> actorNameMap() {
+        return new ColumnMap(this::actor);
+    }
+
+    /**
+     * 按行号访问某一列的Map视图
+     */
+    private class ColumnMap extends AbstractMap<Integer, String> {
+
+        private final IntFunction<String> column;
+
+        ColumnMap(IntFunction<String> column) {
+            this.column = column;
+        }
+
+        @Override
+        public String get(Object key) {
+            return containsKey(key) ? column.apply((Integer) key) : null;
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            return key instanceof Integer && (Integer) key >= 0 && (Integer) key < size;
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+
+        @Override
+        public Set<Entry<Integer, String>> entrySet() {
+            return new AbstractSet<Entry<Integer, String>>() {
+                @Override
+                public Iterator<Entry<Integer, String>> iterator() {
+                    return new Iterator<Entry<Integer, String>>() {
+                        private int row;
+
+                        @Override
+                        public boolean hasNext() {
+                            return row < size;
+                        }
+
+                        @Override
+                        public Entry<Integer, String> next() {
+                            if (row >= size) throw new NoSuchElementException();
+                            int current = row++;
+                            return new SimpleImmutableEntry<>(current, column.apply(current));
+                        }
+                    };
+                }
+
+                @Override
+                public int size() {
+                    return size;
+                }
+            };
+        }
+    }
+}
@@ -1,10 +1,12 @@
 package cn.yl.common.utils;
 
 import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.core.JsonParser;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.DeserializationFeature;
 import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.MappingIterator;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.SerializationFeature;
 import com.fasterxml.jackson.databind.node.ArrayNode;
@@ -12,6 +14,7 @@ import com.fasterxml.jackson.databind.node.ObjectNode;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
 import java.text.SimpleDateFormat;
 
 
@@ -56,6 +59,11 @@ public abstract class JsonUtil {
         return t;
     }
 
+    //解析失败时抛出异常 由调用方决定如何处理
+    public static <T> T readValue(String jsonString, Class<T> object) throws IOException {
+        return objectMapper.readValue(jsonString, object);
+    }
+
     public static <T> T parseObject(File file, Class<T> object) {
         T t = null;
         try {
@@ -66,6 +74,16 @@ public abstract class JsonUtil {
         return t;
     }
 
+    //逐个读取文件中的JSON数组元素或按行分隔的多个JSON对象，不会一次性加载整个文件
+    public static <T> MappingIterator<T> readValues(File file, Class<T> object) throws IOException {
+        return objectMapper.readerFor(object).readValues(file);
+    }
+
+    //创建流式解析器，逐个读取JSON令牌，不会把整个输入读成字符串或对象树
+    public static JsonParser createParser(InputStream in) throws IOException {
+        return objectMapper.getFactory().createParser(in);
+    }
+
     //将json数组字符串转为指定对象List列表或者Map集合
     public static <T> T parseJSONArray(String jsonArray, TypeReference<T> reference) {
         T t = null;
@@ -0,0 +1,707 @@
+package cn.yl.common.utils;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+/**
+ * @author YL
+ * @Desc AList本地文件索引 遍历一次网盘目录树 将文件信息写入紧凑的本地文件 通过内存映射读取 车牌查询不再请求/api/fs/search
+ * <p>
+ * 关键词与/api/fs/search一致按子串匹配 不区分大小写 例：ABC-123可以查到[x]ABC-123C.mp4 BC-12也可以查到
+ * <p>
+ * 文件格式：头部 | 文件记录... | 目录表
+ * 文件记录：目录序号(int) 是否文件夹(byte) 大小(long) 类型(int) 文件名长度(short) 文件名(UTF-8)
+ * 目录表：路径长度(short) 路径 条目数(int) 修改时间长度(short) 修改时间
+ * <p>
+ * 打开后的重命名、移动、删除记录在内存中 由{@link LocalIndexSync}写回文件
+ * <p>
+ * 每次遍历或同步写入新的版本文件 file.000001、file.000002... 不覆盖仍被映射的旧文件 {@link #open(Path)}打开最新版本
+ * 写入新版本后尝试删除旧版本 旧版本仍被映射而无法删除时(Windows)保留 下次写入时再删除
+ * @since 2024-10-18 21:35:07
+ */
+@SuppressWarnings("all")
+public class LocalIndex implements Closeable {
+
+    private static final int MAGIC = 0x414C4958;
+    private static final int VERSION = 2;
+    /**
+     * magic version 记录数 目录数 目录表位置
+     */
+    private static final int HEADER_BYTES = 4 + 4 + 4 + 4 + 8;
+
+    private final FileChannel channel;
+    private final MappedByteBuffer buffer;
+    private final String[] parents;
+    private final Map<String, Integer> dirIds;
+    /**
+     * 目录列出时的条目数 未列出为-1
+     */
+    private final int[] dirCounts;
+    /**
+     * 目录在上级目录中显示的修改时间 未知为null
+     */
+    private final String[] dirModified;
+    /**
+     * 每条记录在文件中的位置
+     */
+    private final int[] offsets;
+    /**
+     * 文件名(小写)中的三字符-记录序号 见{@link #grams(String)}
+     */
+    private final Map<Long, int[]> grams;
+    /**
+     * 目录序号-记录序号
+     */
+    private final Map<Integer, int[]> dirRecords;
+    /**
+     * 打开之后被删除(含重命名、移动前)的记录
+     */
+    private final Set<Integer> deleted = ConcurrentHashMap.newKeySet();
+    /**
+     * 打开之后新增(含重命名、移动后)的记录 上级目录-记录 在锁内读写 读取时复制
+     */
+    private final Map<String, List<AList.Content>> added = new HashMap<>();
+    /**
+     * 新增的记录数
+     */
+    private int addedCount;
+
+    private LocalIndex(Path file) throws IOException {
+        this.channel = FileChannel.open(file, StandardOpenOption.READ);
+        if (channel.size() > Integer.MAX_VALUE) throw new IOException("索引文件超过2GB：" + file);
+        this.buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        buffer.order(ByteOrder.BIG_ENDIAN);
+        if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) throw new IOException("不是有效的索引文件：" + file);
+        int records = buffer.getInt(8);
+        int dirs = buffer.getInt(12);
+        int position = (int) buffer.getLong(16);
+        this.parents = new String[dirs];
+        this.dirIds = new HashMap<>(dirs * 4 / 3 + 1);
+        this.dirCounts = new int[dirs];
+        this.dirModified = new String[dirs];
+        for (int i = 0; i < dirs; i++) {
+            int length = buffer.getShort(position) & 0xFFFF;
+            parents[i] = string(position + 2, length);
+            dirIds.put(parents[i], i);
+            position += 2 + length;
+            dirCounts[i] = buffer.getInt(position);
+            length = buffer.getShort(position + 4) & 0xFFFF;
+            dirModified[i] = length == 0 ? null : string(position + 6, length);
+            position += 6 + length;
+        }
+        this.offsets = new int[records];
+        Map<Long, int[]> grams = new HashMap<>();
+        Map<Integer, int[]> dirRecords = new HashMap<>();
+        position = HEADER_BYTES;
+        for (int i = 0; i < records; i++) {
+            offsets[i] = position;
+            int length = buffer.getShort(position + 17) & 0xFFFF;
+            for (long gram : grams(string(position + 19, length))) {
+                post(grams, gram, i);
+            }
+            post(dirRecords, buffer.getInt(position), i);
+            position += 19 + length;
+        }
+        this.grams = freeze(grams);
+        this.dirRecords = freeze(dirRecords);
+    }
+
+    /**
+     * 打开索引的最新版本 没有版本文件时打开file本身(旧版本生成的索引)
+     */
+    public static LocalIndex open(Path file) throws IOException {
+        List<Path> versions = ErrorJournal.segments(file.toString());
+        return new LocalIndex(versions.isEmpty() ? file : versions.get(versions.size() - 1));
+    }
+
+    /**
+     * 将写完的临时文件作为新版本 再删除更早的版本
+     *
+     * @return 新版本文件
+     */
+    static Path install(Path temp, Path file) throws IOException {
+        List<Path> versions = new ArrayList<>(ErrorJournal.segments(file.toString()));
+        int version = versions.isEmpty() ? 1 : version(versions.get(versions.size() - 1)) + 1;
+        Path installed = file.resolveSibling(String.format("%s.%06d", file.getFileName(), version));
+        Files.move(temp, installed, StandardCopyOption.ATOMIC_MOVE);
+        versions.add(file);
+        for (Path old : versions) {
+            try {
+                Files.deleteIfExists(old);
+            } catch (IOException e) {
+                //仍被映射 下次写入时再删除
+            }
+        }
+        return installed;
+    }
+
+    private static int version(Path file) {
+        String name = file.getFileName().toString();
+        return Integer.parseInt(name.substring(name.lastIndexOf('.') + 1));
+    }
+
+    /**
+     * 遍历网盘目录树并生成索引 写入临时文件后作为新版本 遍历失败时不会破坏原索引
+     *
+     * @param root        根目录
+     * @param password    密码
+     * @param token       token
+     * @param file        索引文件 实际写入file.000001等版本文件
+     * @param parallelism 同时列目录的请求数
+     * @return 文件记录数
+     */
+    public static long crawl(String root, String password, String token, Path file, int parallelism) throws IOException {
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        Tasks tasks = new Tasks(parallelism);
+        try (Writer writer = new Writer(temp)) {
+            //根目录没有上级目录 先取其修改时间 增量同步时才能判断根目录是否变化
+            AList.Content self = AList.get(root, password, token);
+            if (self != null) writer.modified(root, self.getModified());
+            crawl(root, password, token, writer, tasks);
+            tasks.await();
+            long records = writer.records;
+            writer.finish();
+            install(temp, file);
+            return records;
+        } finally {
+            tasks.shutdown();
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    private static void crawl(String dir, String password, String token, Writer writer, Tasks tasks) {
+        tasks.submit(dir, () -> {
+            AList.Data data = AList.list(dir, password, token);
+            if (data == null) throw new IOException("列目录失败");
+            List<AList.Content> contents = data.getContent() == null ? new ArrayList<>() : data.getContent();
+            writer.directory(dir, contents.size());
+            for (AList.Content content : contents) {
+                content.setParent(dir);
+                writer.write(content);
+                if (content.getIsDir()) {
+                    writer.modified(child(dir, content.getName()), content.getModified());
+                    crawl(child(dir, content.getName()), password, token, writer, tasks);
+                }
+            }
+        });
+    }
+
+    /**
+     * 本地搜索 与/api/fs/search的返回结构相同
+     * 取关键词中记录最少的三字符定位候选记录 再按子串比对文件名 关键词不足3个字符时逐条比对
+     *
+     * @param search 搜索条件 使用keywords、parent、scope、page、per_Page
+     */
+    public AList.Data search(AList.Search search) {
+        String keywords = search.getKeywords() == null ? "" : search.getKeywords().toLowerCase(Locale.ROOT);
+        int[] candidates = null;
+        for (long gram : grams(keywords)) {
+            int[] posting = grams.getOrDefault(gram, new int[0]);
+            if (candidates == null || posting.length < candidates.length) {
+                candidates = posting;
+            }
+        }
+        List<AList.Content> matched = new ArrayList<>();
+        if (candidates != null) {
+            for (int id : candidates) {
+                if (!deleted.contains(id)) match(get(id), keywords, search, matched);
+            }
+        } else {
+            for (int id = 0; id < offsets.length; id++) {
+                if (!deleted.contains(id)) match(get(id), keywords, search, matched);
+            }
+        }
+        for (AList.Content content : added()) {
+            match(content, keywords, search, matched);
+        }
+        return page(matched, search.getPage(), search.getPer_Page());
+    }
+
+    /**
+     * 读取一条记录
+     */
+    public AList.Content get(int id) {
+        int position = offsets[id];
+        int length = buffer.getShort(position + 17) & 0xFFFF;
+        return Builder.of(AList.Content::new)
+                .with(AList.Content::setParent, parents[buffer.getInt(position)])
+                .with(AList.Content::setIsDir, buffer.get(position + 4) != 0)
+                .with(AList.Content::setSize, buffer.getLong(position + 5))
+                .with(AList.Content::setType, (long) buffer.getInt(position + 13))
+                .with(AList.Content::setName, string(position + 19, length))
+                .build();
+    }
+
+    public synchronized int size() {
+        return offsets.length - deleted.size() + addedCount;
+    }
+
+    /**
+     * 遍历现有的全部文件 包含打开之后的增删
+     */
+    public void forEach(Consumer<AList.Content> action) {
+        for (int id = 0; id < offsets.length; id++) {
+            if (!deleted.contains(id)) action.accept(get(id));
+        }
+        for (AList.Content content : added()) {
+            action.accept(content);
+        }
+    }
+
+    /**
+     * 目录下现有的文件 包含打开之后的增删
+     */
+    public List<AList.Content> list(String dir) {
+        List<AList.Content> contents = new ArrayList<>();
+        Integer dirId = dirIds.get(dir);
+        if (dirId != null) {
+            for (int id : dirRecords.getOrDefault(dirId, new int[0])) {
+                if (!deleted.contains(id)) contents.add(get(id));
+            }
+        }
+        synchronized (this) {
+            contents.addAll(added.getOrDefault(dir, Collections.emptyList()));
+        }
+        return contents;
+    }
+
+    /**
+     * 新增文件
+     */
+    public synchronized void add(AList.Content content) {
+        insert(content);
+    }
+
+    /**
+     * 删除文件 删除文件夹时同时删除其下全部文件
+     */
+    public synchronized void remove(String dir, Collection<String> names) {
+        Set<String> nameSet = new HashSet<>(names);
+        for (AList.Content content : list(dir)) {
+            if (!nameSet.contains(content.getName())) continue;
+            delete(content);
+            if (content.getIsDir()) {
+                String path = child(dir, content.getName());
+                for (String sub : subtree(path)) {
+                    list(sub).forEach(this::delete);
+                }
+            }
+        }
+    }
+
+    /**
+     * 重命名 重命名文件夹时同时更新其下全部文件的路径
+     */
+    public synchronized void rename(String dir, String srcName, String newName) {
+        for (AList.Content content : list(dir)) {
+            if (!srcName.equals(content.getName())) continue;
+            delete(content);
+            insert(copy(content, dir, newName));
+            if (content.getIsDir()) {
+                relocate(child(dir, srcName), child(dir, newName));
+            }
+        }
+    }
+
+    /**
+     * 移动 移动文件夹时同时更新其下全部文件的路径
+     */
+    public synchronized void move(String srcDir, String dstDir, Collection<String> names) {
+        Set<String> nameSet = new HashSet<>(names);
+        for (AList.Content content : list(srcDir)) {
+            if (!nameSet.contains(content.getName())) continue;
+            delete(content);
+            insert(copy(content, dstDir, content.getName()));
+            if (content.getIsDir()) {
+                relocate(child(srcDir, content.getName()), child(dstDir, content.getName()));
+            }
+        }
+    }
+
+    /**
+     * 目录列出时的条目数 未知为-1
+     */
+    int directoryCount(String dir) {
+        Integer dirId = dirIds.get(dir);
+        return dirId == null ? -1 : dirCounts[dirId];
+    }
+
+    /**
+     * 目录在上级目录中显示的修改时间 未知为null
+     */
+    String directoryModified(String dir) {
+        Integer dirId = dirIds.get(dir);
+        return dirId == null ? null : dirModified[dirId];
+    }
+
+    /**
+     * 打开之后是否有增删
+     */
+    synchronized boolean isModified() {
+        return !deleted.isEmpty() || addedCount > 0;
+    }
+
+    /**
+     * 将文件夹下的全部文件从oldPath移到newPath
+     */
+    private void relocate(String oldPath, String newPath) {
+        for (String sub : subtree(oldPath)) {
+            String target = newPath + sub.substring(oldPath.length());
+            //整个目录一起移动 不逐条从新增记录中删除
+            List<AList.Content> moved = added.remove(sub);
+            if (moved != null) {
+                addedCount -= moved.size();
+                for (AList.Content content : moved) {
+                    insert(copy(content, target, content.getName()));
+                }
+            }
+            Integer dirId = dirIds.get(sub);
+            if (dirId == null) continue;
+            for (int id : dirRecords.getOrDefault(dirId, new int[0])) {
+                if (deleted.add(id)) insert(copy(get(id), target, name(id)));
+            }
+        }
+    }
+
+    /**
+     * 文件夹及其下全部子文件夹的路径
+     */
+    private List<String> subtree(String path) {
+        Set<String> dirs = new LinkedHashSet<>();
+        for (String parent : parents) {
+            if (inside(path, parent)) dirs.add(parent);
+        }
+        for (String parent : added.keySet()) {
+            if (inside(path, parent)) dirs.add(parent);
+        }
+        return new ArrayList<>(dirs);
+    }
+
+    /**
+     * 新增的全部记录 复制后返回
+     */
+    private synchronized List<AList.Content> added() {
+        List<AList.Content> contents = new ArrayList<>(addedCount);
+        added.values().forEach(contents::addAll);
+        return contents;
+    }
+
+    private void insert(AList.Content content) {
+        added.computeIfAbsent(content.getParent(), k -> new ArrayList<>()).add(content);
+        addedCount++;
+    }
+
+    private void delete(AList.Content content) {
+        List<AList.Content> contents = added.get(content.getParent());
+        if (contents != null && contents.remove(content)) {
+            addedCount--;
+            if (contents.isEmpty()) added.remove(content.getParent());
+        } else {
+            Integer dirId = dirIds.get(content.getParent());
+            for (int id : dirRecords.getOrDefault(dirId, new int[0])) {
+                if (content.getName().equals(name(id))) deleted.add(id);
+            }
+        }
+    }
+
+    private static AList.Content copy(AList.Content content, String parent, String name) {
+        return Builder.of(AList.Content::new)
+                .with(AList.Content::setParent, parent)
+                .with(AList.Content::setName, name)
+                .with(AList.Content::setIsDir, content.getIsDir())
+                .with(AList.Content::setSize, content.getSize())
+                .with(AList.Content::setType, content.getType())
+                .with(AList.Content::setModified, content.getModified())
+                .build();
+    }
+
+    private String name(int id) {
+        int position = offsets[id];
+        return string(position + 19, buffer.getShort(position + 17) & 0xFFFF);
+    }
+
+    static <K> void post(Map<K, int[]> postings, K key, int id) {
+        //posting[0]为长度
+        int[] posting = postings.get(key);
+        if (posting == null) {
+            posting = new int[]{0, 0};
+        } else if (posting[posting[0]] == id) {
+            return;
+        } else if (posting[0] + 1 == posting.length) {
+            posting = Arrays.copyOf(posting, posting.length * 2);
+        }
+        posting[++posting[0]] = id;
+        postings.put(key, posting);
+    }
+
+    static <K> Map<K, int[]> freeze(Map<K, int[]> postings) {
+        Map<K, int[]> frozen = new HashMap<>(postings.size() * 4 / 3 + 1);
+        postings.forEach((k, v) -> frozen.put(k, Arrays.copyOfRange(v, 1, v[0] + 1)));
+        return frozen;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    static void match(AList.Content content, String keywords, AList.Search search, List<AList.Content> matched) {
+        if (!content.getName().toLowerCase(Locale.ROOT).contains(keywords)) return;
+        if (search.getParent() != null && !inside(search.getParent(), content.getParent())) return;
+        //0-全部 1-文件夹 2-文件
+        if (search.getScope() == 1 && !content.getIsDir()) return;
+        if (search.getScope() == 2 && content.getIsDir()) return;
+        matched.add(content);
+    }
+
+    static AList.Data page(List<AList.Content> matched, long page, long perPage) {
+        List<AList.Content> content = matched;
+        if (perPage > 0) {
+            long from = Math.max(0, (Math.max(1, page) - 1) * perPage);
+            content = from >= matched.size() ? new ArrayList<>() : new ArrayList<>(matched.subList((int) from, (int) Math.min(matched.size(), from + perPage)));
+        }
+        return Builder.of(AList.Data::new)
+                .with(AList.Data::setContent, content)
+                .with(AList.Data::setTotal, (long) matched.size())
+                .build();
+    }
+
+    /**
+     * 转为小写后不同的三字符(含符号) 文件名包含关键词时必然包含关键词的全部三字符
+     */
+    static long[] grams(String name) {
+        return FuzzyMatcher.grams(name.toLowerCase(Locale.ROOT));
+    }
+
+    static boolean inside(String parent, String dir) {
+        if (!dir.startsWith(parent)) return false;
+        return dir.length() == parent.length() || parent.endsWith("/") || dir.charAt(parent.length()) == '/';
+    }
+
+    static String child(String dir, String name) {
+        return dir.endsWith("/") ? dir + name : dir + "/" + name;
+    }
+
+    private String string(int position, int length) {
+        byte[] bytes = new byte[length];
+        ByteBuffer duplicate = buffer.duplicate();
+        duplicate.position(position);
+        duplicate.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * 遍历目录树的任务 以待完成计数代替Phaser(最多65535个参与方) 目录再多也不受限制
+     * 任一任务失败(含运行时异常和Error)后不再执行新任务 {@link #await()}抛出异常 不会生成不完整的索引
+     */
+    static class Tasks {
+        private final ExecutorService executor;
+        private final AtomicReference<String> failure = new AtomicReference<>();
+        private final ReentrantLock lock = new ReentrantLock();
+        private final Condition finished = lock.newCondition();
+        private int pending;
+
+        Tasks(int parallelism) {
+            this.executor = Executors.newFixedThreadPool(Math.max(1, parallelism));
+        }
+
+        /**
+         * 提交一个目录的任务
+         */
+        void submit(String dir, Task task) {
+            lock.lock();
+            try {
+                pending++;
+            } finally {
+                lock.unlock();
+            }
+            try {
+                executor.execute(() -> {
+                    try {
+                        if (failure.get() == null) task.run();
+                    } catch (UncheckedIOException e) {
+                        fail(dir, e.getCause());
+                    } catch (IOException | RuntimeException | Error e) {
+                        fail(dir, e);
+                    } finally {
+                        done();
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                fail(dir, e);
+                done();
+            }
+        }
+
+        /**
+         * 等待全部任务完成
+         *
+         * @throws IOException 任一任务失败
+         */
+        void await() throws IOException {
+            lock.lock();
+            try {
+                while (pending > 0) {
+                    finished.await();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("遍历目录被中断");
+            } finally {
+                lock.unlock();
+            }
+            if (failure.get() != null) throw new IOException("列目录失败：" + failure.get());
+        }
+
+        void shutdown() {
+            executor.shutdownNow();
+        }
+
+        private void fail(String dir, Throwable e) {
+            failure.compareAndSet(null, dir + " " + e);
+        }
+
+        private void done() {
+            lock.lock();
+            try {
+                if (--pending == 0) finished.signalAll();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    /**
+     * 一个目录的任务
+     */
+    interface Task {
+        void run() throws IOException;
+    }
+
+    /**
+     * 索引写入 可被多个遍历线程同时调用
+     */
+    static class Writer implements Closeable {
+        private final FileChannel channel;
+        private final ByteBuffer buffer = ByteBuffer.allocate(1 << 16);
+        private final Map<String, Integer> dirIds = new HashMap<>();
+        private final List<String> dirs = new ArrayList<>();
+        private final List<Integer> counts = new ArrayList<>();
+        private final List<String> modified = new ArrayList<>();
+        private long records;
+
+        Writer(Path file) throws IOException {
+            this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+            channel.position(HEADER_BYTES);
+        }
+
+        synchronized void write(AList.Content content) throws IOException {
+            byte[] name = truncate(content.getName());
+            int dir = dirId(content.getParent());
+            if (buffer.remaining() < 19 + name.length) drain();
+            buffer.putInt(dir)
+                    .put((byte) (content.getIsDir() ? 1 : 0))
+                    .putLong(content.getSize())
+                    .putInt((int) content.getType())
+                    .putShort((short) name.length)
+                    .put(name);
+            records++;
+        }
+
+        /**
+         * 记录目录列出时的条目数
+         */
+        synchronized void directory(String dir, int count) {
+            counts.set(dirId(dir), count);
+        }
+
+        /**
+         * 记录目录在上级目录中显示的修改时间
+         */
+        synchronized void modified(String dir, String time) {
+            modified.set(dirId(dir), time);
+        }
+
+        private int dirId(String dir) {
+            Integer id = dirIds.get(dir);
+            if (id == null) {
+                id = dirs.size();
+                dirIds.put(dir, id);
+                dirs.add(dir);
+                counts.add(-1);
+                modified.add(null);
+            }
+            return id;
+        }
+
+        /**
+         * 写入目录表和头部
+         */
+        synchronized void finish() throws IOException {
+            drain();
+            long dirTable = channel.position();
+            for (int i = 0; i < dirs.size(); i++) {
+                byte[] bytes = truncate(dirs.get(i));
+                byte[] time = truncate(modified.get(i) == null ? "" : modified.get(i));
+                if (buffer.remaining() < 8 + bytes.length + time.length) drain();
+                buffer.putShort((short) bytes.length).put(bytes)
+                        .putInt(counts.get(i))
+                        .putShort((short) time.length).put(time);
+            }
+            drain();
+            if (channel.size() > Integer.MAX_VALUE) throw new IOException("索引文件超过2GB");
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+            header.putInt(MAGIC).putInt(VERSION).putInt((int) records).putInt(dirs.size()).putLong(dirTable).flip();
+            channel.write(header, 0);
+            channel.force(true);
+        }
+
+        private void drain() throws IOException {
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            buffer.clear();
+        }
+
+        private static byte[] truncate(String s) {
+            byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+            return bytes.length > 0xFFFF ? Arrays.copyOf(bytes, 0xFFFF) : bytes;
+        }
+
+        @Override
+        public synchronized void close() throws IOException {
+            channel.close();
+        }
+    }
+}
@@ -0,0 +1,202 @@
+package cn.yl.common.utils;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * @author YL
+ * @Desc 本地文件索引增量同步 只重新列出修改时间发生变化的目录 其余目录直接沿用原索引
+ * <p>
+ * 目录的修改时间取自刚列出的上级目录 上级目录未重新列出时通过/api/fs/get获取 与索引中记录的不一致时才完整列出该目录
+ * 只比较条目数会漏掉重命名和替换 所以不再使用条目数判断
+ * 可选择跳过未变化目录的整个子树
+ * @since 2024-10-19 20:57:44
+ */
+@SuppressWarnings("all")
+public abstract class LocalIndexSync {
+
+    /**
+     * 增量同步 结果写入新的版本文件 逐个目录探测 见{@link #refresh(LocalIndex, String, String, String, Path, int, boolean, Stats)}
+     */
+    public static LocalIndex refresh(LocalIndex index, String root, String password, String token, Path file,
+                                     int parallelism, Stats stats) throws IOException {
+        return refresh(index, root, password, token, file, parallelism, false, stats);
+    }
+
+    /**
+     * 增量同步 结果写入新的版本文件 不覆盖原索引正在映射的文件
+     * <p>
+     * 原索引在内存中的增删(自身的重命名、移动、删除)会一并写入 返回新打开的索引 原索引需由调用方关闭
+     * 原索引的文件在写入新版本时尝试删除 仍被映射而无法删除时(Windows)在下次同步时删除
+     * <p>
+     * 上级目录重新列出时 子目录的修改时间与索引一致则视为未变化 不再请求
+     * 上级目录未重新列出时不知道子目录的修改时间 需通过/api/fs/get获取一次
+     * 网盘目录的修改时间一般只反映直接子项的变化 不会因更深层的变化而改变 所以默认未变化目录的子目录仍逐个探测
+     * pruneUnchanged为true时未变化目录的整个子树直接沿用原索引 不再请求 适合只在浅层目录增删文件的场景 深层的变化要等其上级目录变化后才会同步
+     *
+     * @param index          原索引
+     * @param root           根目录
+     * @param password       密码
+     * @param token          token
+     * @param file           索引文件
+     * @param parallelism    同时列目录的请求数
+     * @param pruneUnchanged 是否跳过未变化目录的子树
+     * @param stats          同步统计 可为null
+     * @return 同步后的索引
+     */
+    public static LocalIndex refresh(LocalIndex index, String root, String password, String token, Path file,
+                                     int parallelism, boolean pruneUnchanged, Stats stats) throws IOException {
+        Stats counter = stats == null ? new Stats() : stats;
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        Path installed;
+        LocalIndex.Tasks tasks = new LocalIndex.Tasks(parallelism);
+        try (LocalIndex.Writer writer = new LocalIndex.Writer(temp)) {
+            refresh(index, root, null, false, pruneUnchanged, password, token, writer, tasks, counter);
+            tasks.await();
+            writer.finish();
+            installed = LocalIndex.install(temp, file);
+        } finally {
+            tasks.shutdown();
+            Files.deleteIfExists(temp);
+        }
+        return LocalIndex.open(installed);
+    }
+
+    /**
+     * 同步一个目录
+     *
+     * @param modified 上级目录刚列出时显示的修改时间 上级目录未重新列出时为null
+     * @param pruned   上级目录未变化且跳过其子树 直接沿用原索引
+     */
+    private static void refresh(LocalIndex index, String dir, String modified, boolean pruned, boolean pruneUnchanged, String password, String token,
+                                LocalIndex.Writer writer, LocalIndex.Tasks tasks, Stats stats) {
+        tasks.submit(dir, () -> {
+            List<AList.Content> known = index.list(dir);
+            int count = index.directoryCount(dir);
+            boolean changed;
+            if (pruned) {
+                changed = false;
+                stats.pruned.incrementAndGet();
+            } else if (count < 0) {
+                changed = true;
+            } else if (modified != null) {
+                changed = !modified.equals(index.directoryModified(dir));
+            } else {
+                //上级目录未重新列出 取目录自身的修改时间 重命名、替换不改变条目数 只能以修改时间判断
+                AList.Content self = AList.get(dir, password, token);
+                stats.probed.incrementAndGet();
+                if (self == null) throw new IOException("获取目录信息失败");
+                changed = self.getModified() == null || !self.getModified().equals(index.directoryModified(dir));
+                //上级目录写入的是原修改时间 根目录则没有上级目录写入 更新为最新的 下次同步不再重复列出
+                writer.modified(dir, self.getModified());
+            }
+            List<AList.Content> contents;
+            Map<String, String> childModified = new HashMap<>();
+            if (changed) {
+                AList.Data data = AList.list(dir, password, token);
+                stats.listed.incrementAndGet();
+                if (data == null) throw new IOException("列目录失败");
+                contents = data.getContent() == null ? new ArrayList<>() : data.getContent();
+                diff(known, contents, stats);
+                for (AList.Content content : contents) {
+                    content.setParent(dir);
+                    if (content.getIsDir()) childModified.put(content.getName(), content.getModified());
+                }
+            } else {
+                contents = known;
+            }
+            writer.directory(dir, contents.size());
+            for (AList.Content content : contents) {
+                writer.write(content);
+                if (content.getIsDir()) {
+                    String path = LocalIndex.child(dir, content.getName());
+                    String time = changed ? childModified.get(content.getName()) : index.directoryModified(path);
+                    writer.modified(path, time);
+                    refresh(index, path, changed ? time : null, !changed && pruneUnchanged, pruneUnchanged, password, token, writer, tasks, stats);
+                }
+            }
+        });
+    }
+
+    /**
+     * 统计新增、大小变化和删除的条目
+     */
+    private static void diff(List<AList.Content> known, List<AList.Content> contents, Stats stats) {
+        Map<String, AList.Content> before = new HashMap<>();
+        for (AList.Content content : known) {
+            before.put(content.getName(), content);
+        }
+        for (AList.Content content : contents) {
+            AList.Content old = before.remove(content.getName());
+            if (old == null) {
+                stats.inserted.incrementAndGet();
+            } else if (old.getSize() != content.getSize()) {
+                stats.updated.incrementAndGet();
+            }
+        }
+        stats.deleted.addAndGet(before.size());
+    }
+
+    /**
+     * 同步统计
+     */
+    public static class Stats {
+        /**
+         * 通过/api/fs/get获取修改时间的目录数
+         */
+        private final AtomicLong probed = new AtomicLong();
+        /**
+         * 完整列出的目录数
+         */
+        private final AtomicLong listed = new AtomicLong();
+        /**
+         * 沿用原索引未请求的目录数
+         */
+        private final AtomicLong pruned = new AtomicLong();
+        private final AtomicLong inserted = new AtomicLong();
+        private final AtomicLong updated = new AtomicLong();
+        private final AtomicLong deleted = new AtomicLong();
+
+        public long getProbed() {
+            return probed.get();
+        }
+
+        public long getListed() {
+            return listed.get();
+        }
+
+        public long getPruned() {
+            return pruned.get();
+        }
+
+        public long getInserted() {
+            return inserted.get();
+        }
+
+        public long getUpdated() {
+            return updated.get();
+        }
+
+        public long getDeleted() {
+            return deleted.get();
+        }
+
+        @Override
+        public String toString() {
+            return "Stats{" +
+                    "probed=" + probed +
+                    ", listed=" + listed +
+                    ", pruned=" + pruned +
+                    ", inserted=" + inserted +
+                    ", updated=" + updated +
+                    ", deleted=" + deleted +
+                    '}';
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package cn.yl.common.utils;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * @author YL
+ * @Desc {@link LocalIndexSync}增量同步校验 基于{@link AListStubServer}
+ * <p>
+ * 建立索引后在深层目录中重命名一个文件(条目数不变) 再增量同步 检查新文件名已同步、原文件名已删除
+ * 再同步一次检查不再重复列出 不一致时打印并以非0退出
+ * 用法：java cn.yl.common.utils.LocalIndexSyncCheck
+ * @since 2024-11-03 10:26:18
+ */
+@SuppressWarnings("all")
+public class LocalIndexSyncCheck {
+
+    private static final String ROOT = "/root";
+
+    private static final String DIR = ROOT + "/a/b";
+
+    public static void main(String[] args) throws Exception {
+        Path dir = Files.createTempDirectory("alist-index");
+        Path file = dir.resolve("index.bin");
+        int failures = 0;
+        try (AListStubServer server = new AListStubServer(0, 4).start();
+             AListClient client = new AListClient(server.getBaseUrl(), null)) {
+            AList.setClient(client);
+            for (int i = 0; i < 5; i++) {
+                server.addFile(DIR, "ABC-" + i + ".mp4", i);
+            }
+            server.addFile(ROOT + "/c", "DEF-0.mp4", 0);
+            LocalIndex.crawl(ROOT, null, null, file, 2);
+            LocalIndex index = LocalIndex.open(file);
+
+            AList.Rename rename = Builder.of(AList.Rename::new)
+                    .with(AList.Rename::setSrc_Dir, DIR)
+                    .with(AList.Rename::setRename_Objects, Collections.singletonList(Builder.of(AList.RenameObject::new)
+                            .with(AList.RenameObject::setSrc_Name, "ABC-1.mp4")
+                            .with(AList.RenameObject::setNew_Name, "XYZ-1.mp4")
+                            .build()))
+                    .build();
+            AList.Result result = client.post("/api/fs/batch_rename", rename);
+            if (result == null || result.getCode() != 200) throw new IOException("重命名失败");
+
+            LocalIndexSync.Stats stats = new LocalIndexSync.Stats();
+            LocalIndex refreshed = LocalIndexSync.refresh(index, ROOT, null, null, file, 2, stats);
+            index.close();
+            System.out.println("同步：" + stats);
+            List<String> names = names(refreshed.list(DIR));
+            if (!names.contains("XYZ-1.mp4") || names.contains("ABC-1.mp4") || names.size() != 5) {
+                failures++;
+                System.err.printf("同数量重命名未同步：%s%n", names);
+            }
+            if (stats.getListed() != 1) {
+                failures++;
+                System.err.printf("应只列出%s 实际列出%d个目录%n", DIR, stats.getListed());
+            }
+
+            stats = new LocalIndexSync.Stats();
+            LocalIndex again = LocalIndexSync.refresh(refreshed, ROOT, null, null, file, 2, stats);
+            refreshed.close();
+            System.out.println("再次同步：" + stats);
+            if (stats.getListed() != 0) {
+                failures++;
+                System.err.printf("未变化时仍列出%d个目录%n", stats.getListed());
+            }
+            again.close();
+        } finally {
+            try (Stream<Path> files = Files.list(dir)) {
+                files.forEach(path -> path.toFile().delete());
+            }
+            Files.deleteIfExists(dir);
+        }
+        System.out.printf("不一致%d项%n", failures);
+        if (failures > 0) System.exit(1);
+    }
+
+    private static List<String> names(List<AList.Content> contents) {
+        List<String> names = new ArrayList<>();
+        for (AList.Content content : contents) {
+            names.add(content.getName());
+        }
+        return names;
+    }
+}
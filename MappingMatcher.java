@@ -0,0 +1,179 @@
+package cn.yl.common.utils;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * @author YL
+ * @Desc 重命名映射匹配器 将映射表一次性编译为Aho-Corasick自动机 对文件名只扫描一遍即可找出全部命中的别名
+ * @since 2024-10-14 21:02:37
+ */
+@SuppressWarnings("all")
+public final class MappingMatcher {
+
+    /**
+     * 编译时的映射表 用于判断是否需要重建
+     */
+    private final Map<String, String> source;
+    private final int sourceSize;
+    /**
+     * 按映射表遍历顺序排列的替换值
+     */
+    private final String[] values;
+    /**
+     * 空别名 任何文件名都命中
+     */
+    private final int[] alwaysMatched;
+    /**
+     * 节点i的边为 edgeChars/edgeTargets[edgeStart[i], edgeStart[i + 1]) 按字符升序
+     */
+    private final int[] edgeStart;
+    private final char[] edgeChars;
+    private final int[] edgeTargets;
+    private final int[] fail;
+    /**
+     * 在该节点结束的别名序号 没有为-1
+     */
+    private final int[] pattern;
+    /**
+     * 沿失败链最近的一个有别名结束的节点 没有为-1
+     */
+    private final int[] outLink;
+
+    private MappingMatcher(Map<String, String> mappings) {
+        this.source = mappings;
+        this.sourceSize = mappings.size();
+        this.values = new String[mappings.size()];
+        List<TreeMap<Character, Integer>> trie = new ArrayList<>();
+        List<Integer> patterns = new ArrayList<>();
+        List<Integer> empty = new ArrayList<>();
+        trie.add(new TreeMap<>());
+        patterns.add(-1);
+        int id = 0;
+        for (Map.Entry<String, String> entry : mappings.entrySet()) {
+            String key = entry.getKey();
+            values[id] = entry.getValue();
+            if (key == null || key.isEmpty()) {
+                empty.add(id++);
+                continue;
+            }
+            int node = 0;
+            for (int i = 0; i < key.length(); i++) {
+                Integer child = trie.get(node).get(key.charAt(i));
+                if (child == null) {
+                    child = trie.size();
+                    trie.add(new TreeMap<>());
+                    patterns.add(-1);
+                    trie.get(node).put(key.charAt(i), child);
+                }
+                node = child;
+            }
+            patterns.set(node, id++);
+        }
+        int size = trie.size();
+        this.alwaysMatched = empty.stream().mapToInt(Integer::intValue).toArray();
+        this.edgeStart = new int[size + 1];
+        int edges = 0;
+        for (int i = 0; i < size; i++) {
+            edgeStart[i] = edges;
+            edges += trie.get(i).size();
+        }
+        edgeStart[size] = edges;
+        this.edgeChars = new char[edges];
+        this.edgeTargets = new int[edges];
+        this.pattern = new int[size];
+        for (int i = 0; i < size; i++) {
+            int e = edgeStart[i];
+            for (Map.Entry<Character, Integer> edge : trie.get(i).entrySet()) {
+                edgeChars[e] = edge.getKey();
+                edgeTargets[e++] = edge.getValue();
+            }
+            pattern[i] = patterns.get(i);
+        }
+        //按层构建失败指针
+        this.fail = new int[size];
+        this.outLink = new int[size];
+        outLink[0] = -1;
+        ArrayDeque<Integer> queue = new ArrayDeque<>();
+        for (int e = edgeStart[0]; e < edgeStart[1]; e++) {
+            fail[edgeTargets[e]] = 0;
+            outLink[edgeTargets[e]] = -1;
+            queue.add(edgeTargets[e]);
+        }
+        while (!queue.isEmpty()) {
+            int node = queue.poll();
+            for (int e = edgeStart[node]; e < edgeStart[node + 1]; e++) {
+                int child = edgeTargets[e];
+                int f = fail[node];
+                int next;
+                while ((next = child(f, edgeChars[e])) < 0 && f != 0) {
+                    f = fail[f];
+                }
+                fail[child] = next < 0 ? 0 : next;
+                outLink[child] = pattern[fail[child]] >= 0 ? fail[child] : outLink[fail[child]];
+                queue.add(child);
+            }
+        }
+    }
+
+    /**
+     * 编译映射表
+     *
+     * @param mappings 别名-替换值 命中时按映射表的遍历顺序输出
+     */
+    public static MappingMatcher compile(Map<String, String> mappings) {
+        return new MappingMatcher(mappings);
+    }
+
+    /**
+     * 是否由该映射表编译而来 映射表被替换或增删条目后返回false 需要重新编译
+     */
+    public boolean isCompiledFrom(Map<String, String> mappings) {
+        return source == mappings && sourceSize == mappings.size();
+    }
+
+    /**
+     * 扫描文本 对每个被包含的别名追加 value + " "
+     * 结果与按映射表遍历并逐个 text.contains(mapping) 相同
+     *
+     * @param text 文件名前缀
+     * @param sb   输出
+     */
+    public void appendMatches(CharSequence text, StringBuilder sb) {
+        int[] hits = new int[8];
+        int count = 0;
+        for (int id : alwaysMatched) {
+            if (count == hits.length) hits = Arrays.copyOf(hits, count * 2);
+            hits[count++] = id;
+        }
+        int node = 0;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            int next;
+            while ((next = child(node, c)) < 0 && node != 0) {
+                node = fail[node];
+            }
+            node = next < 0 ? 0 : next;
+            for (int out = pattern[node] >= 0 ? node : outLink[node]; out >= 0; out = outLink[out]) {
+                if (count == hits.length) hits = Arrays.copyOf(hits, count * 2);
+                hits[count++] = pattern[out];
+            }
+        }
+        //按映射表顺序输出 同一别名只输出一次
+        Arrays.sort(hits, 0, count);
+        for (int i = 0; i < count; i++) {
+            if (i == 0 || hits[i] != hits[i - 1]) {
+                sb.append(values[hits[i]]).append(" ");
+            }
+        }
+    }
+
+    private int child(int node, char c) {
+        int index = Arrays.binarySearch(edgeChars, edgeStart[node], edgeStart[node + 1], c);
+        return index < 0 ? -1 : edgeTargets[index];
+    }
+}
@@ -0,0 +1,168 @@
+package cn.yl.common.utils;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.BiConsumer;
+
+/**
+ * @author YL
+ * @Desc 批量移动执行器 合并相同源目录-目标目录的文件 按目标目录分组 不同目标目录并发发送 同一目标目录内串行发送
+ * <p>
+ * 目标目录首次使用前会调用/api/fs/mkdir确保存在 已确认存在的目录缓存在当前会话{@link AListClient}中 切换会话后重新确认
+ * @since 2024-10-21 20:44:16
+ */
+@SuppressWarnings("all")
+public abstract class MoveExecutor {
+
+    /**
+     * 单个请求最多移动的文件数
+     */
+    public static final int MAX_NAMES = 1000;
+
+    /**
+     * 合并相同源目录-目标目录的移动 文件名去重 超过{@link #MAX_NAMES}的拆分
+     */
+    public static List<AList.Move> merge(List<AList.Move> moves) {
+        Map<String, Map<String, Set<String>>> merged = new LinkedHashMap<>();
+        for (AList.Move move : moves) {
+            merged.computeIfAbsent(move.getDst_dir(), k -> new LinkedHashMap<>())
+                    .computeIfAbsent(move.getSrc_dir(), k -> new LinkedHashSet<>())
+                    .addAll(move.getNames());
+        }
+        List<AList.Move> batchMove = new ArrayList<>();
+        merged.forEach((dst, sources) -> sources.forEach((src, names) -> {
+            List<String> all = new ArrayList<>(names);
+            for (int from = 0; from < all.size(); from += MAX_NAMES) {
+                batchMove.add(Builder.of(AList.Move::new)
+                        .with(AList.Move::setSrc_dir, src)
+                        .with(AList.Move::setDst_dir, dst)
+                        .with(AList.Move::setNames, new ArrayList<>(all.subList(from, Math.min(all.size(), from + MAX_NAMES))))
+                        .build());
+            }
+        }));
+        return batchMove;
+    }
+
+    /**
+     * 执行移动
+     *
+     * @param moves       移动请求
+     * @param token       token
+     * @param parallelism 同时处理的目标目录数
+     * @param onComplete  每个请求完成后的回调 参数为请求体和是否成功
+     * @return 失败的请求
+     */
+    public static List<AList.Move> execute(List<AList.Move> moves, String token, int parallelism, BiConsumer<AList.Move, Boolean> onComplete) throws IOException {
+        Map<String, List<AList.Move>> groups = new LinkedHashMap<>();
+        for (AList.Move move : merge(moves)) {
+            groups.computeIfAbsent(move.getDst_dir(), k -> new ArrayList<>()).add(move);
+        }
+        List<AList.Move> error = new ArrayList<>();
+        if (groups.isEmpty()) return error;
+        if (parallelism <= 1 || groups.size() == 1) {
+            //不需要并发时在当前线程发送 不创建线程池
+            for (Map.Entry<String, List<AList.Move>> group : groups.entrySet()) {
+                try {
+                    error.addAll(execute(group.getKey(), group.getValue(), token, onComplete));
+                } catch (RuntimeException e) {
+                    System.err.printf("移动到%s失败：%s%n", group.getKey(), e);
+                    error.addAll(group.getValue());
+                }
+            }
+            return error;
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(parallelism, groups.size()));
+        try {
+            List<Future<List<AList.Move>>> futures = new ArrayList<>();
+            for (Map.Entry<String, List<AList.Move>> group : groups.entrySet()) {
+                futures.add(executor.submit(() -> execute(group.getKey(), group.getValue(), token, onComplete)));
+            }
+            int i = 0;
+            for (Map.Entry<String, List<AList.Move>> group : groups.entrySet()) {
+                try {
+                    error.addAll(futures.get(i++).get());
+                } catch (ExecutionException e) {
+                    System.err.printf("移动到%s失败：%s%n", group.getKey(), e.getCause());
+                    error.addAll(group.getValue());
+                }
+            }
+            return error;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("批量移动被中断");
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * 移动到同一目标目录的请求 串行发送
+     *
+     * @return 失败的请求
+     */
+    private static List<AList.Move> execute(String dst, List<AList.Move> moves, String token, BiConsumer<AList.Move, Boolean> onComplete) throws InterruptedIOException {
+        List<AList.Move> failed = new ArrayList<>();
+        if (!mkdir(dst, token)) {
+            failed.addAll(moves);
+            return failed;
+        }
+        for (AList.Move move : moves) {
+            AList.Result result = AList.post("/api/fs/batch_move", move, token);
+            boolean success = result != null && result.getCode() == 200;
+            onComplete.accept(move, success);
+            if (!success) failed.add(move);
+        }
+        return failed;
+    }
+
+    /**
+     * 确保目录存在
+     */
+    static boolean mkdir(String dir, String token) throws InterruptedIOException {
+        Set<String> knownDirs = AList.getClient().knownDirs();
+        if (knownDirs.contains(dir)) return true;
+        AList.MakeDir makeDir = Builder.of(AList.MakeDir::new)
+                .with(AList.MakeDir::setPath, dir)
+                .build();
+        AList.Result result = AList.post("/api/fs/mkdir", makeDir, token);
+        if (result == null || result.getCode() != 200) return false;
+        knownDirs.add(dir);
+        return true;
+    }
+
+    /**
+     * 目录被删除或重命名后调用 下次使用前重新确认
+     */
+    public static void forget(String dir) {
+        AList.getClient().knownDirs().removeIf(known -> LocalIndex.inside(dir, known));
+    }
+
+    /**
+     * 目录下的文件被删除或重命名后调用 只遍历一次缓存
+     *
+     * @param dir   所在目录
+     * @param names 被删除或重命名的文件名
+     */
+    public static void forget(String dir, Collection<String> names) {
+        if (names.isEmpty()) return;
+        Set<String> nameSet = new HashSet<>(names);
+        int start = dir.endsWith("/") ? dir.length() : dir.length() + 1;
+        AList.getClient().knownDirs().removeIf(known -> {
+            if (known.length() < start || !LocalIndex.inside(dir, known) || known.length() == dir.length()) return false;
+            int end = known.indexOf('/', start);
+            return nameSet.contains(end < 0 ? known.substring(start) : known.substring(start, end));
+        });
+    }
+}
@@ -0,0 +1,101 @@
+package cn.yl.common.utils;
+
+import com.alibaba.excel.EasyExcel;
+import com.alibaba.excel.ExcelWriter;
+import com.alibaba.excel.support.ExcelTypeEnum;
+import com.alibaba.excel.write.metadata.WriteSheet;
+
+import java.io.Closeable;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * @author YL
+ * @Desc 115官方重命名模版流式导出 按批写入 xlsx超过单页行数自动换页 内存占用与总行数无关
+ * <p>
+ * 按文件扩展名选择格式 .csv为CSV 其余为xlsx
+ * @since 2024-10-23 20:37:15
+ */
+@SuppressWarnings("all")
+public class OfficialRenameExporter implements Consumer<AList.OfficialRename>, Closeable {
+
+    /**
+     * 每批写入的行数
+     */
+    public static final int BATCH_ROWS = 1000;
+
+    /**
+     * xlsx单页最多行数 留出余量 上限为1048576
+     */
+    public static final int SHEET_ROWS = 1_000_000;
+
+    private final ExcelWriter writer;
+
+    private final boolean csv;
+
+    private final List<AList.OfficialRename> buffer = new ArrayList<>(BATCH_ROWS);
+
+    private WriteSheet sheet;
+
+    private int sheetNo;
+
+    private int sheetRows;
+
+    private long rows;
+
+    public OfficialRenameExporter(File file) {
+        this.csv = file.getName().toLowerCase().endsWith(".csv");
+        this.writer = EasyExcel.write(file, AList.OfficialRename.class)
+                .excelType(csv ? ExcelTypeEnum.CSV : ExcelTypeEnum.XLSX)
+                .build();
+    }
+
+    /**
+     * 写入一行 满一批时写出
+     */
+    @Override
+    public void accept(AList.OfficialRename officialRename) {
+        buffer.add(officialRename);
+        rows++;
+        if (buffer.size() >= BATCH_ROWS) flush();
+    }
+
+    /**
+     * 写出缓冲的行
+     */
+    public void flush() {
+        int from = 0;
+        while (from < buffer.size()) {
+            if (sheet == null || (!csv && sheetRows >= SHEET_ROWS)) {
+                sheet = EasyExcel.writerSheet(sheetNo, "Sheet" + (sheetNo + 1)).build();
+                sheetNo++;
+                sheetRows = 0;
+            }
+            int to = csv ? buffer.size() : Math.min(buffer.size(), from + SHEET_ROWS - sheetRows);
+            writer.write(buffer.subList(from, to), sheet);
+            sheetRows += to - from;
+            from = to;
+        }
+        buffer.clear();
+    }
+
+    /**
+     * 已写入的行数
+     */
+    public long getRows() {
+        return rows;
+    }
+
+    @Override
+    public void close() {
+        try {
+            flush();
+            //没有数据时也写出表头
+            if (sheet == null) writer.write(buffer, EasyExcel.writerSheet(0, "Sheet1").build());
+        } finally {
+            writer.finish();
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package cn.yl.common.utils;
+
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * @author YL
+ * @Desc 车牌提取工具 正则只编译一次 每个线程复用同一个Matcher 只返回位置不创建新字符串
+ * @since 2024-10-13 20:15:42
+ */
+@SuppressWarnings("all")
+public abstract class PlateTokenizer {
+
+    /**
+     * 未匹配
+     */
+    public static final long NOT_FOUND = -1L;
+
+    /**
+     * 搜索关键词中的车牌 例：ABC-123
+     */
+    private static final Pattern PLATE = Pattern.compile("\\b(?:[a-zA-Z]*[-\\d\\s0-9a-zA-Z]*[-\\d])");
+
+    /**
+     * 文件名中的车牌 额外允许下划线 例：ABC_123
+     */
+    private static final Pattern FILE_PLATE = Pattern.compile("\\b(?:[a-zA-Z]*[-_\\d\\sa-zA-Z]*[-_\\d])");
+
+    private static final ThreadLocal<Matcher> PLATE_MATCHER = ThreadLocal.withInitial(() -> PLATE.matcher(""));
+
+    private static final ThreadLocal<Matcher> FILE_PLATE_MATCHER = ThreadLocal.withInitial(() -> FILE_PLATE.matcher(""));
+
+    /**
+     * 查找第一个车牌
+     *
+     * @param text 车牌名
+     * @return 高32位为起始位置 低32位为结束位置(不含) 未匹配返回{@link #NOT_FOUND}
+     */
+    public static long find(CharSequence text) {
+        if (text == null) return NOT_FOUND;
+        Matcher matcher = PLATE_MATCHER.get().reset(text);
+        try {
+            return matcher.find() ? span(matcher.start(), matcher.end()) : NOT_FOUND;
+        } finally {
+            //不持有调用方的字符串
+            matcher.reset("");
+        }
+    }
+
+    /**
+     * 文件名中车牌之前的部分(一般为演员名等前缀)的结束位置
+     * 等价于 text.split(FILE_PLATE)[0].length()
+     *
+     * @param text 文件名
+     * @return 第一个车牌的起始位置 未匹配时为text的长度
+     */
+    public static int prefixEnd(CharSequence text) {
+        Matcher matcher = FILE_PLATE_MATCHER.get().reset(text);
+        try {
+            return matcher.find() ? matcher.start() : text.length();
+        } finally {
+            matcher.reset("");
+        }
+    }
+
+    /**
+     * 提取第一个车牌
+     *
+     * @return 未匹配返回null
+     */
+    public static String extract(String text) {
+        long span = find(text);
+        return span == NOT_FOUND ? null : text.substring(start(span), end(span));
+    }
+
+    public static int start(long span) {
+        return (int) (span >>> 32);
+    }
+
+    public static int end(long span) {
+        return (int) span;
+    }
+
+    private static long span(int start, int end) {
+        return ((long) start << 32) | (end & 0xFFFFFFFFL);
+    }
+}
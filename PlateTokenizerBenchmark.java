@@ -0,0 +1,146 @@
+package cn.yl.common.utils;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * @author YL
+ * @Desc {@link PlateTokenizer}与原正则写法的一致性校验和耗时对比
+ * <p>
+ * 先逐条比对 原写法：每次编译Pattern取group 以及 split(正则)[0] 取车牌之前的部分 不一致时打印并以非0退出
+ * 文件名以车牌开头且之后没有其他内容时原写法抛出数组越界 按车牌之前的部分为空比对
+ * 再分别循环执行 预热后输出每次调用的平均耗时
+ * 用法：java cn.yl.common.utils.PlateTokenizerBenchmark [样本文件(每行一个文件名)] [轮数]
+ * 默认：随机生成10万个文件名 10轮
+ * @since 2024-11-02 19:47:05
+ */
+@SuppressWarnings("all")
+public class PlateTokenizerBenchmark {
+
+    private static final String PLATE = "\\b(?:[a-zA-Z]*[-\\d\\s0-9a-zA-Z]*[-\\d])";
+
+    private static final String FILE_PLATE = "(\\b(?:[a-zA-Z]*[-_\\d\\sa-zA-Z]*[-_\\d]))";
+
+    private static final int WARMUP_ROUNDS = 3;
+
+    public static void main(String[] args) throws IOException {
+        List<String> corpus = args.length > 0 && !"-".equals(args[0])
+                ? Files.readAllLines(Paths.get(args[0]), StandardCharsets.UTF_8)
+                : generate(100_000, 42);
+        int rounds = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+        int mismatches = verify(corpus);
+        System.out.printf("样本%d条 不一致%d条%n", corpus.size(), mismatches);
+        time("extract 原写法", corpus, rounds, PlateTokenizerBenchmark::oldExtract);
+        time("extract", corpus, rounds, PlateTokenizer::extract);
+        time("prefixEnd 原写法", corpus, rounds, s -> oldPrefixEnd(s));
+        time("prefixEnd", corpus, rounds, s -> PlateTokenizer.prefixEnd(s));
+        if (mismatches > 0) System.exit(1);
+    }
+
+    /**
+     * 逐条比对 原写法抛出异常的按车牌之前的部分为空比对
+     *
+     * @return 不一致的条数
+     */
+    static int verify(List<String> corpus) {
+        int mismatches = 0;
+        int thrown = 0;
+        for (String name : corpus) {
+            String expected = oldExtract(name);
+            String actual = PlateTokenizer.extract(name);
+            if (expected == null ? actual != null : !expected.equals(actual)) {
+                mismatches++;
+                System.err.printf("extract不一致：[%s] 原写法[%s] 现在[%s]%n", name, expected, actual);
+            }
+            int expectedEnd;
+            try {
+                expectedEnd = oldPrefixEnd(name);
+            } catch (ArrayIndexOutOfBoundsException e) {
+                //文件名以车牌开头且车牌之后没有其他内容 split返回空数组 车牌之前的部分应为空
+                thrown++;
+                expectedEnd = 0;
+            }
+            int actualEnd = PlateTokenizer.prefixEnd(name);
+            if (expectedEnd != actualEnd) {
+                mismatches++;
+                System.err.printf("prefixEnd不一致：[%s] 原写法[%s] 现在[%d]%n", name, expectedEnd, actualEnd);
+            }
+        }
+        System.out.printf("原写法抛出异常%d条%n", thrown);
+        return mismatches;
+    }
+
+    /**
+     * 原AList.buildSearch的写法
+     */
+    static String oldExtract(String licensePlate) {
+        Matcher matcher = Pattern.compile(PLATE).matcher(licensePlate);
+        return matcher.find() ? matcher.group() : null;
+    }
+
+    /**
+     * 原AList.contains的写法 文件名全部为车牌时split返回空数组 原写法会抛出异常
+     */
+    static int oldPrefixEnd(String srcName) {
+        return srcName.split(FILE_PLATE)[0].length();
+    }
+
+    /**
+     * 随机生成文件名 覆盖中文前缀、方括号、下划线、无连字符、后缀和多个扩展名
+     */
+    static List<String> generate(int count, long seed) {
+        String[] prefixes = {"", "演员 ", "[x]", "【高清】演员名 ", "actor ", "演员_"};
+        String[] letters = {"ABC", "abc", "FC2-PPV", "SSIS", "x"};
+        String[] separators = {"-", "_", "", " "};
+        String[] suffixes = {"", "-C", "_HD", " 高清", "-1", "ch"};
+        String[] extensions = {".mp4", ".jpg", ".torrent", ".mp4.part", ""};
+        Random random = new Random(seed);
+        List<String> corpus = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            corpus.add(prefixes[random.nextInt(prefixes.length)]
+                    + letters[random.nextInt(letters.length)]
+                    + separators[random.nextInt(separators.length)]
+                    + (random.nextInt(9_999_999) + 1)
+                    + suffixes[random.nextInt(suffixes.length)]
+                    + extensions[random.nextInt(extensions.length)]);
+        }
+        return corpus;
+    }
+
+    private static void time(String name, List<String> corpus, int rounds, Task task) {
+        long sink = 0;
+        for (int round = 0; round < WARMUP_ROUNDS; round++) {
+            sink += run(corpus, task);
+        }
+        long start = System.nanoTime();
+        for (int round = 0; round < rounds; round++) {
+            sink += run(corpus, task);
+        }
+        double nanos = (double) (System.nanoTime() - start) / rounds / corpus.size();
+        System.out.printf("%-16s %8.1f ns/次 (%d)%n", name, nanos, sink);
+    }
+
+    private static long run(List<String> corpus, Task task) {
+        long sink = 0;
+        for (String name : corpus) {
+            try {
+                Object result = task.apply(name);
+                sink += result == null ? 0 : result.hashCode();
+            } catch (RuntimeException e) {
+                sink--;
+            }
+        }
+        return sink;
+    }
+
+    private interface Task {
+        Object apply(String name);
+    }
+}
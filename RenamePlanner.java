@@ -0,0 +1,102 @@
+package cn.yl.common.utils;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * @author YL
+ * @Desc 批量重命名计划 每个目录只生成一份去重后的重命名集合 超大目录按条数和请求体大小拆分为多个请求
+ * @since 2024-10-15 22:31:09
+ */
+@SuppressWarnings("all")
+public abstract class RenamePlanner {
+
+    /**
+     * 单个请求默认最大条数
+     */
+    public static final int DEFAULT_MAX_OBJECTS = 500;
+
+    /**
+     * 单个请求默认最大字节数
+     */
+    public static final int DEFAULT_MAX_BYTES = 256 * 1024;
+
+    /**
+     * 每个重命名对象JSON字段名及符号的固定开销 {"new_Name":"","src_Name":""},
+     */
+    private static final int OBJECT_OVERHEAD = 32;
+
+    /**
+     * 生成重命名计划
+     *
+     * @param renames    待发送的重命名 同一目录可出现多次
+     * @param maxObjects 单个请求最大条数
+     * @param maxBytes   单个请求最大字节数(估算)
+     * @return 按目录首次出现的顺序排列的请求 同一目录内src_Name唯一
+     */
+    public static List<AList.Rename> plan(List<AList.Rename> renames, int maxObjects, int maxBytes) {
+        Map<String, Map<String, AList.RenameObject>> dirs = new LinkedHashMap<>();
+        for (AList.Rename rename : renames) {
+            Map<String, AList.RenameObject> objects = dirs.computeIfAbsent(rename.getSrc_Dir(), k -> new LinkedHashMap<>());
+            for (AList.RenameObject renameObject : rename.getRename_Objects()) {
+                //同一文件只保留第一次的命名
+                objects.putIfAbsent(renameObject.getSrc_Name(), renameObject);
+            }
+        }
+        List<AList.Rename> plan = new ArrayList<>();
+        dirs.forEach((dir, objects) -> {
+            int base = utf8Length(dir) + OBJECT_OVERHEAD;
+            List<AList.RenameObject> chunk = new ArrayList<>();
+            int bytes = base;
+            for (AList.RenameObject renameObject : objects.values()) {
+                int size = utf8Length(renameObject.getSrc_Name()) + utf8Length(renameObject.getNew_Name()) + OBJECT_OVERHEAD;
+                if (!chunk.isEmpty() && (chunk.size() >= maxObjects || bytes + size > maxBytes)) {
+                    plan.add(of(dir, chunk));
+                    chunk = new ArrayList<>();
+                    bytes = base;
+                }
+                chunk.add(renameObject);
+                bytes += size;
+            }
+            if (!chunk.isEmpty()) {
+                plan.add(of(dir, chunk));
+            }
+        });
+        return plan;
+    }
+
+    public static List<AList.Rename> plan(List<AList.Rename> renames) {
+        return plan(renames, DEFAULT_MAX_OBJECTS, DEFAULT_MAX_BYTES);
+    }
+
+    private static AList.Rename of(String dir, List<AList.RenameObject> renameObjects) {
+        return Builder.of(AList.Rename::new)
+                .with(AList.Rename::setSrc_Dir, dir)
+                .with(AList.Rename::setRename_Objects, renameObjects)
+                .build();
+    }
+
+    /**
+     * 不分配字节数组计算UTF-8长度
+     */
+    static int utf8Length(String s) {
+        if (s == null) return 4;
+        int length = 0;
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (c < 0x80) {
+                length++;
+            } else if (c < 0x800) {
+                length += 2;
+            } else if (Character.isHighSurrogate(c)) {
+                length += 4;
+                i++;
+            } else {
+                length += 3;
+            }
+        }
+        return length;
+    }
+}
@@ -0,0 +1,172 @@
+package cn.yl.common.utils;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * @author YL
+ * @Desc AList搜索结果缓存 按搜索条件缓存/api/fs/search的结果 支持过期时间、容量淘汰(LRU)、命中统计以及按目录失效
+ * @since 2024-10-12 21:40:18
+ */
+@SuppressWarnings("all")
+public class SearchCache {
+
+    /**
+     * 最大缓存条数
+     */
+    private final int maximumSize;
+    /**
+     * 过期时间 毫秒
+     */
+    private final long ttlMillis;
+    private final LinkedHashMap<Key, Value> cache;
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    /**
+     * @param maximumSize 最大缓存条数 超出后淘汰最久未访问的
+     * @param ttl         过期时间
+     * @param unit        时间单位
+     */
+    public SearchCache(int maximumSize, long ttl, TimeUnit unit) {
+        if (maximumSize <= 0) throw new IllegalArgumentException("maximumSize必须大于0");
+        this.maximumSize = maximumSize;
+        this.ttlMillis = unit.toMillis(ttl);
+        this.cache = new LinkedHashMap<Key, Value>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, Value> eldest) {
+                if (size() > SearchCache.this.maximumSize) {
+                    evictions.incrementAndGet();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * 获取缓存 过期的条目视为未命中并移除
+     */
+    public synchronized AList.Data get(AList.Search search) {
+        Key key = new Key(search);
+        Value value = cache.get(key);
+        if (value == null) {
+            misses.incrementAndGet();
+            return null;
+        }
+        if (value.expireAt < System.currentTimeMillis()) {
+            cache.remove(key);
+            misses.incrementAndGet();
+            return null;
+        }
+        hits.incrementAndGet();
+        return value.data;
+    }
+
+    public synchronized void put(AList.Search search, AList.Data data) {
+        cache.put(new Key(search), new Value(data, System.currentTimeMillis() + ttlMillis));
+    }
+
+    /**
+     * 目录发生重命名、移动、删除后 使搜索范围包含该目录的缓存失效
+     * 搜索范围在该目录之内的缓存也一并失效 该目录本身被重命名或移动时其下的路径都已改变
+     *
+     * @param dir 发生变更的目录
+     */
+    public synchronized void invalidate(String dir) {
+        if (dir == null) return;
+        Iterator<Key> iterator = cache.keySet().iterator();
+        while (iterator.hasNext()) {
+            String parent = iterator.next().parent;
+            if (parent == null || covers(parent, dir) || covers(dir, parent)) {
+                iterator.remove();
+            }
+        }
+    }
+
+    public synchronized void invalidateAll() {
+        cache.clear();
+    }
+
+    public synchronized int size() {
+        return cache.size();
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    public long getEvictions() {
+        return evictions.get();
+    }
+
+    @Override
+    public String toString() {
+        return "SearchCache{" +
+                "size=" + size() +
+                ", hits=" + hits +
+                ", misses=" + misses +
+                ", evictions=" + evictions +
+                '}';
+    }
+
+    /**
+     * 搜索目录parent是否包含dir
+     */
+    private static boolean covers(String parent, String dir) {
+        if (!dir.startsWith(parent)) return false;
+        return dir.length() == parent.length() || parent.endsWith("/") || dir.charAt(parent.length()) == '/';
+    }
+
+    private static class Value {
+        private final AList.Data data;
+        private final long expireAt;
+
+        Value(AList.Data data, long expireAt) {
+            this.data = data;
+            this.expireAt = expireAt;
+        }
+    }
+
+    /**
+     * 缓存键 取搜索条件中影响结果的字段
+     */
+    private static class Key {
+        private final String keywords;
+        private final String parent;
+        private final long scope;
+        private final long page;
+        private final long per_Page;
+
+        Key(AList.Search search) {
+            this.keywords = search.getKeywords();
+            this.parent = search.getParent();
+            this.scope = search.getScope();
+            this.page = search.getPage();
+            this.per_Page = search.getPer_Page();
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Key)) return false;
+            Key key = (Key) o;
+            return scope == key.scope && page == key.page && per_Page == key.per_Page
+                    && Objects.equals(keywords, key.keywords) && Objects.equals(parent, key.parent);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(keywords, parent, scope, page, per_Page);
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package cn.yl.common.utils;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * @author YL
+ * @Desc /api/fs/search、/api/fs/list响应的流式解析 直接从响应流逐个读取文件信息写入{@link ContentTable}
+ * <p>
+ * 不生成响应字符串、Result/Data对象和文件信息列表 写入的行已按目录分组
+ * @since 2024-10-29 20:26:14
+ */
+@SuppressWarnings("all")
+public abstract class SearchResponseParser {
+
+    /**
+     * 解析失败或返回码不为200
+     */
+    public static final long FAILED = -1;
+
+    /**
+     * 解析响应
+     *
+     * @param in    响应流 由调用方关闭
+     * @param table 写入的表 失败(返回码不为200、响应不完整或抛出异常)时本次写入的行会被删除
+     * @return Data.total 失败返回{@link #FAILED}
+     */
+    public static long parse(InputStream in, ContentTable table) throws IOException {
+        int before = table.size();
+        long code = FAILED;
+        long total = 0;
+        boolean complete = false;
+        try (JsonParser parser = JsonUtil.createParser(in)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) return FAILED;
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.getCurrentName();
+                JsonToken token = parser.nextToken();
+                if ("code".equals(field)) {
+                    code = parser.getValueAsLong(FAILED);
+                } else if ("data".equals(field) && token == JsonToken.START_OBJECT && (code == FAILED || code == 200)) {
+                    total = data(parser, table);
+                } else {
+                    parser.skipChildren();
+                }
+            }
+            complete = parser.getCurrentToken() == JsonToken.END_OBJECT;
+        } finally {
+            if (!complete || code != 200) table.truncate(before);
+        }
+        if (!complete) return FAILED;
+        return code == 200 ? total : FAILED;
+    }
+
+    private static long data(JsonParser parser, ContentTable table) throws IOException {
+        long total = 0;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.getCurrentName();
+            JsonToken token = parser.nextToken();
+            if ("content".equals(field) && token == JsonToken.START_ARRAY) {
+                while (parser.nextToken() == JsonToken.START_OBJECT) {
+                    content(parser, table);
+                }
+            } else if ("total".equals(field)) {
+                total = parser.getValueAsLong();
+            } else {
+                parser.skipChildren();
+            }
+        }
+        return total;
+    }
+
+    private static void content(JsonParser parser, ContentTable table) throws IOException {
+        String name = null;
+        String parent = null;
+        boolean isDir = false;
+        long size = 0;
+        long type = 0;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.getCurrentName();
+            parser.nextToken();
+            switch (field) {
+                case "name":
+                    name = parser.getValueAsString();
+                    break;
+                case "parent":
+                    parent = parser.getValueAsString();
+                    break;
+                case "is_dir":
+                case "isDir":
+                    isDir = parser.getValueAsBoolean();
+                    break;
+                case "size":
+                    size = parser.getValueAsLong();
+                    break;
+                case "type":
+                    type = parser.getValueAsLong();
+                    break;
+                default:
+                    parser.skipChildren();
+            }
+        }
+        if (name != null) table.add(parent, name, isDir, size, type);
+    }
+}